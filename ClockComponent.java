@@ -0,0 +1,142 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import javax.swing.JComponent;
+
+/**
+ * HH:mm:ss clock for the Home section. The digits and the colon are rendered once per font
+ * into cached images, the time is kept in a reused char buffer, and each tick repaints only
+ * the cells whose character changed (usually just the last one). Apart from the repaint
+ * request Swing queues, a tick allocates nothing; the zone offset is only looked up again
+ * once the next DST transition has passed.
+ */
+public class ClockComponent extends JComponent {
+
+    private static final int CELLS = 8; // HH:mm:ss
+    private static final String GLYPHS = "0123456789:";
+
+    private final char[] shown = new char[CELLS];
+    private final char[] next = new char[CELLS];
+    private final ZoneRules zone = ZoneId.systemDefault().getRules();
+    private long offsetMillis;
+    private long offsetValidUntil = Long.MIN_VALUE;
+
+    private final Insets insets = new Insets(0, 0, 0, 0);
+    private BufferedImage[] glyphs;
+    private int cellWidth;
+    private int cellHeight;
+
+    public ClockComponent() {
+        setOpaque(true);
+        setBackground(Color.black);
+        setForeground(Color.white);
+        for (int i = 0; i < CELLS; i++) shown[i] = ' ';
+    }
+
+    /** Updates the time and repaints the cells that changed. Call on the EDT. */
+    public void tick(long epochMillis) {
+        if (epochMillis >= offsetValidUntil) updateOffset(epochMillis);
+        long local = epochMillis + offsetMillis;
+        int secondOfDay = (int) Math.floorMod(local / 1000, 86_400L);
+        int h = secondOfDay / 3600;
+        int m = secondOfDay / 60 % 60;
+        int s = secondOfDay % 60;
+        next[0] = (char) ('0' + h / 10);
+        next[1] = (char) ('0' + h % 10);
+        next[2] = ':';
+        next[3] = (char) ('0' + m / 10);
+        next[4] = (char) ('0' + m % 10);
+        next[5] = ':';
+        next[6] = (char) ('0' + s / 10);
+        next[7] = (char) ('0' + s % 10);
+
+        ensureGlyphs();
+        Insets in = getInsets(insets);
+        int x0 = (getWidth() - CELLS * cellWidth) / 2;
+        int y0 = in.top + (getHeight() - in.top - in.bottom - cellHeight) / 2;
+        for (int i = 0; i < CELLS; i++) {
+            if (shown[i] != next[i]) {
+                shown[i] = next[i];
+                repaint(x0 + i * cellWidth, y0, cellWidth, cellHeight);
+            }
+        }
+    }
+
+    private void updateOffset(long epochMillis) {
+        // Allocates, but only at startup and after a zone transition.
+        Instant now = Instant.ofEpochMilli(epochMillis);
+        offsetMillis = zone.getOffset(now).getTotalSeconds() * 1000L;
+        ZoneOffsetTransition t = zone.nextTransition(now);
+        offsetValidUntil = t == null ? Long.MAX_VALUE : t.toEpochSecond() * 1000L;
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        glyphs = null;
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public void setForeground(Color fg) {
+        super.setForeground(fg);
+        glyphs = null;
+        repaint();
+    }
+
+    private void ensureGlyphs() {
+        if (glyphs != null || getFont() == null) return;
+        FontMetrics fm = getFontMetrics(getFont());
+        cellWidth = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) cellWidth = Math.max(cellWidth, fm.charWidth(GLYPHS.charAt(i)));
+        cellHeight = fm.getAscent() + fm.getDescent();
+
+        glyphs = new BufferedImage[GLYPHS.length()];
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            BufferedImage img = new BufferedImage(Math.max(1, cellWidth), Math.max(1, cellHeight), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = img.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(getFont());
+            g.setColor(getForeground());
+            char c = GLYPHS.charAt(i);
+            g.drawString(String.valueOf(c), (cellWidth - fm.charWidth(c)) / 2, fm.getAscent());
+            g.dispose();
+            glyphs[i] = img;
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) return super.getPreferredSize();
+        ensureGlyphs();
+        Insets in = getInsets();
+        return new Dimension(CELLS * cellWidth + in.left + in.right, cellHeight + in.top + in.bottom);
+    }
+
+    @Override
+    public Dimension getMaximumSize() { return getPreferredSize(); }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        if (clip != null) g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        else g.fillRect(0, 0, getWidth(), getHeight());
+
+        ensureGlyphs();
+        if (glyphs == null) return;
+        Insets in = getInsets(insets);
+        int x0 = (getWidth() - CELLS * cellWidth) / 2;
+        int y0 = in.top + (getHeight() - in.top - in.bottom - cellHeight) / 2;
+        for (int i = 0; i < CELLS; i++) {
+            int x = x0 + i * cellWidth;
+            if (clip != null && (x + cellWidth <= clip.x || x >= clip.x + clip.width)) continue;
+            int glyph = shown[i] == ':' ? 10 : shown[i] - '0';
+            if (glyph >= 0 && glyph <= 10) g.drawImage(glyphs[glyph], x, y0, null);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.swing.SwingUtilities;
+
+/**
+ * One thread that sleeps until the earliest pending deadline and then runs everything that
+ * is due on the EDT in a single invokeLater. Deadlines are System.nanoTime() values, so they
+ * are not affected by wall-clock changes and do not drift when the EDT is busy: a task that
+ * fires late still computes its next deadline from the original one.
+ *
+ * Tasks are one-shot; periodic work reschedules itself from its action.
+ */
+public class DeadlineScheduler {
+
+    public final class Task implements Comparable<Task> {
+        private final long deadline;
+        private final Runnable action;
+        private volatile boolean cancelled;
+
+        private Task(long deadline, Runnable action) {
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        public long deadline() { return deadline; }
+
+        /** Safe to call from any thread, also after the task has fired. */
+        public void cancel() { cancelled = true; }
+
+        @Override
+        public int compareTo(Task o) { return Long.compare(deadline, o.deadline); }
+    }
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+
+    public DeadlineScheduler(String name) {
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Runs action on the EDT once System.nanoTime() reaches deadlineNanos. */
+    public Task schedule(long deadlineNanos, Runnable action) {
+        Task task = new Task(deadlineNanos, action);
+        synchronized (queue) {
+            queue.add(task);
+            if (queue.peek() == task) queue.notifyAll(); // new earliest deadline
+        }
+        return task;
+    }
+
+    public Task scheduleAfter(Duration delay, Runnable action) {
+        return schedule(System.nanoTime() + delay.toNanos(), action);
+    }
+
+    /** Wall-clock time mapped onto the monotonic clock as of now. */
+    public Task scheduleAt(LocalDateTime when, Runnable action) {
+        Duration delay = Duration.between(LocalDateTime.now(), when);
+        return scheduleAfter(delay.isNegative() ? Duration.ZERO : delay, action);
+    }
+
+    private void run() {
+        while (true) {
+            List<Task> due = new ArrayList<>();
+            synchronized (queue) {
+                try {
+                    while (true) {
+                        Task next = queue.peek();
+                        if (next == null) {
+                            queue.wait();
+                            continue;
+                        }
+                        if (next.cancelled) {
+                            queue.poll();
+                            continue;
+                        }
+                        long wait = next.deadline - System.nanoTime();
+                        if (wait <= 0) break;
+                        queue.wait(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long now = System.nanoTime();
+                while (!queue.isEmpty() && queue.peek().deadline - now <= 0) due.add(queue.poll());
+            }
+            SwingUtilities.invokeLater(() -> {
+                for (Task t : due) if (!t.cancelled) t.action.run();
+            });
+        }
+    }
+
+    // ---------------- Deadline helpers ----------------
+
+    /** The next whole wall-clock second, as a nanoTime deadline. */
+    public static long nextSecond() {
+        long millis = System.currentTimeMillis();
+        return System.nanoTime() + (1000 - millis % 1000) * 1_000_000L;
+    }
+
+    /** The next whole wall-clock minute, as a nanoTime deadline. */
+    public static long nextMinute() {
+        long millis = System.currentTimeMillis();
+        return System.nanoTime() + (60_000 - millis % 60_000) * 1_000_000L;
+    }
+}
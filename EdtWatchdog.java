@@ -0,0 +1,140 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.AbstractButton;
+
+/**
+ * Opt-in EDT responsiveness probe, on with -Dhabits.edtWatchdog=report-file. A daemon thread
+ * posts an empty event every habits.edtProbeMs (default 100) and records how long it waited
+ * in the queue as HabitMetrics.edtLatency. When a probe has not run after habits.edtStallMs
+ * (default 300) the EDT is stalled: its stack and the event it is dispatching (which
+ * component, which invokeLater, the first frame of our own code) are appended to the report,
+ * followed by how long the stall lasted once it ends.
+ *
+ * The event is known because the watchdog pushes its own EventQueue that notes each event
+ * before dispatching it; that costs two volatile writes per event.
+ */
+public final class EdtWatchdog {
+
+    private static final long PROBE_INTERVAL_MS = Long.getLong("habits.edtProbeMs", 100);
+    private static final long STALL_MS = Long.getLong("habits.edtStallMs", 300);
+
+    private final File report;
+    private volatile Thread edt;
+    private volatile AWTEvent current;
+    private volatile long currentSince;
+
+    private EdtWatchdog(File report) {
+        this.report = report;
+    }
+
+    /** Starts the watchdog if habits.edtWatchdog names a report file. */
+    public static void startIfEnabled() {
+        String path = System.getProperty("habits.edtWatchdog");
+        if (path == null || path.isEmpty()) return;
+        EdtWatchdog w = new EdtWatchdog(new File(path));
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(w.new TracingQueue());
+        Thread probe = new Thread(w::run, "edt-watchdog");
+        probe.setDaemon(true);
+        probe.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> w.write("exit " + summary()), "edt-watchdog-summary"));
+    }
+
+    private final class TracingQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            AWTEvent outer = current; // nested loops (modal dialogs) dispatch inside an event
+            long outerSince = currentSince;
+            current = event;
+            currentSince = System.nanoTime();
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                current = outer;
+                currentSince = outerSince;
+            }
+        }
+    }
+
+    // ---------------- Probing ----------------
+    private void run() {
+        write("start probe=" + PROBE_INTERVAL_MS + "ms stall=" + STALL_MS + "ms");
+        try {
+            while (true) {
+                CountDownLatch ran = new CountDownLatch(1);
+                long posted = System.nanoTime();
+                EventQueue.invokeLater(() -> {
+                    HabitMetrics.INSTANCE.edtLatency.stop(posted);
+                    edt = Thread.currentThread();
+                    ran.countDown();
+                });
+                if (!ran.await(STALL_MS, TimeUnit.MILLISECONDS)) {
+                    stalled();
+                    ran.await();
+                    write("stall ended after " + (System.nanoTime() - posted) / 1_000_000L + " ms; " + summary());
+                }
+                Thread.sleep(PROBE_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            // daemon; only interrupted on the way out
+        }
+    }
+
+    private void stalled() {
+        Thread t = edt;
+        AWTEvent event = current;
+        long busy = (System.nanoTime() - currentSince) / 1_000_000L;
+        StackTraceElement[] stack = t == null ? new StackTraceElement[0] : t.getStackTrace();
+        StringBuilder sb = new StringBuilder("stall > ").append(STALL_MS).append(" ms\n");
+        if (event != null) {
+            sb.append("  dispatching for ").append(busy).append(" ms: ").append(describe(event)).append('\n');
+        }
+        for (StackTraceElement frame : stack) {
+            if (!isPlatform(frame)) {
+                sb.append("  running ").append(frame).append('\n');
+                break;
+            }
+        }
+        sb.append("  ").append(t == null ? "EDT not seen yet" : t.getName()).append(" stack:");
+        for (StackTraceElement frame : stack) sb.append("\n    at ").append(frame);
+        write(sb.toString());
+    }
+
+    private static String describe(AWTEvent event) {
+        Object source = event.getSource();
+        String on = source.getClass().getName();
+        if (source instanceof AbstractButton) {
+            String text = ((AbstractButton) source).getText();
+            if (text != null) on += " \"" + text + "\"";
+        }
+        return event.getClass().getName() + "[" + event.paramString() + "] on " + on;
+    }
+
+    private static boolean isPlatform(StackTraceElement frame) {
+        String c = frame.getClassName();
+        return c.startsWith("java.") || c.startsWith("javax.") || c.startsWith("sun.")
+                || c.startsWith("jdk.") || c.startsWith("com.sun.") || c.startsWith(EdtWatchdog.class.getName());
+    }
+
+    private static String summary() {
+        return "edt latency " + HabitMetrics.INSTANCE.getEdtLatency();
+    }
+
+    // ---------------- Report ----------------
+    @SuppressWarnings("CallToPrintStackTrace")
+    private synchronized void write(String entry) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.println(Instant.now() + " " + entry);
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+}
@@ -0,0 +1,46 @@
+import java.awt.Component;
+import java.awt.Font;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Derived fonts shared across the UI. Every (style, size) pair is derived once from the
+ * base font. Components registered with bind() are switched over automatically when the
+ * base font changes, so the UI can start with a fallback while the real font still loads.
+ *
+ * Not thread-safe: use it from the EDT.
+ */
+public class FontCache {
+
+    private Font base;
+    private final Map<Long, Font> derived = new HashMap<>();
+    private final Map<Component, Long> bindings = new WeakHashMap<>();
+
+    public FontCache(Font base) { this.base = base; }
+
+    public Font base() { return base; }
+
+    public Font get(int style, float size) {
+        return derived.computeIfAbsent(key(style, size), k -> base.deriveFont(style, size));
+    }
+
+    /** Sets the font on c now and again whenever the base font changes. */
+    public void bind(Component c, int style, float size) {
+        c.setFont(get(style, size));
+        bindings.put(c, key(style, size));
+    }
+
+    public void setBase(Font base) {
+        this.base = base;
+        derived.clear();
+        for (Map.Entry<Component, Long> e : bindings.entrySet()) {
+            long k = e.getValue();
+            e.getKey().setFont(get((int) (k >>> 32), Float.intBitsToFloat((int) k)));
+        }
+    }
+
+    private static long key(int style, float size) {
+        return ((long) style << 32) | (Float.floatToIntBits(size) & 0xffffffffL);
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Streaming reader for habits.txt ("checked|name") and habits_meta.txt ("name|streak|date").
+ * Works on the raw UTF-8 bytes of a FileChannel: lines and the '|' delimiter are found by a
+ * byte scan, the streak and an ISO date are parsed in place, and only the habit name becomes
+ * a String. Large files are memory-mapped instead of read through a buffer.
+ *
+ * Accepts exactly what the old BufferedReader/split loaders accepted (\n, \r and \r\n line
+ * ends, names containing '|', a bad streak counting as 0, a bad date as none); lines those
+ * loaders silently dropped or patched up are now also reported to a Problems callback.
+ */
+public final class HabitFileParser {
+
+    public interface HabitSink {
+        void habit(String name, boolean checked);
+    }
+
+    public interface MetaSink {
+        /** lastCompleted is null when the line has no date. */
+        void meta(String name, int streak, LocalDate lastCompleted);
+    }
+
+    public interface Problems {
+        void malformed(File file, int line, String message);
+    }
+
+    /** Default reporting: one "file:line: message" line on stderr. */
+    public static final Problems STDERR = (file, line, message) ->
+            System.err.println(file.getName() + ":" + line + ": " + message);
+
+    // files at least this big are mapped rather than read in chunks
+    private static final long MMAP_THRESHOLD = Long.getLong("habits.mmapThreshold", 1 << 20);
+    private static final int CHUNK = 64 * 1024;
+
+    private final File file;
+    private final Problems problems;
+    private byte[] scratch = new byte[256];
+    private int lineNumber;
+
+    private HabitFileParser(File file, Problems problems) {
+        this.file = file;
+        this.problems = problems;
+    }
+
+    // ---------------- Entry points ----------------
+    public static void parseHabits(File file, HabitSink sink, Problems problems) throws IOException {
+        HabitFileParser p = new HabitFileParser(file, problems);
+        p.scan((buf, start, end) -> p.habitLine(buf, start, end, sink));
+    }
+
+    public static void parseMeta(File file, MetaSink sink, Problems problems) throws IOException {
+        HabitFileParser p = new HabitFileParser(file, problems);
+        p.scan((buf, start, end) -> p.metaLine(buf, start, end, sink));
+    }
+
+    private interface LineHandler {
+        /** One line without its terminator: bytes [start, end) of buf. */
+        void line(ByteBuffer buf, int start, int end);
+    }
+
+    // ---------------- Lines ----------------
+    private void habitLine(ByteBuffer buf, int start, int end, HabitSink sink) {
+        if (start == end) return;
+        int bar = indexOf(buf, start, end, (byte) '|');
+        if (bar < 0) {
+            problems.malformed(file, lineNumber, "expected checked|name");
+            return;
+        }
+        boolean checked = bar - start == 1 && buf.get(start) == '1';
+        sink.habit(string(buf, bar + 1, end), checked);
+    }
+
+    private void metaLine(ByteBuffer buf, int start, int end, MetaSink sink) {
+        if (start == end) return;
+        int bar1 = indexOf(buf, start, end, (byte) '|');
+        if (bar1 < 0) {
+            problems.malformed(file, lineNumber, "expected name|streak|date");
+            return;
+        }
+        int bar2 = indexOf(buf, bar1 + 1, end, (byte) '|');
+        int streakEnd = bar2 < 0 ? end : bar2;
+
+        int streak = parseInt(buf, bar1 + 1, streakEnd);
+        LocalDate date = null;
+        if (bar2 >= 0 && bar2 + 1 < end) {
+            date = parseDate(buf, bar2 + 1, end);
+            if (date == null) problems.malformed(file, lineNumber, "bad date, ignored");
+        }
+        sink.meta(string(buf, start, bar1), streak, date);
+    }
+
+    // ---------------- Scanning ----------------
+
+    /** Splits the file into lines the way BufferedReader.readLine() does. */
+    private void scan(LineHandler handler) throws IOException {
+        try {
+            scanChannel(handler);
+        } finally {
+            HabitMetrics.INSTANCE.linesParsed(lineNumber);
+        }
+    }
+
+    private void scanChannel(LineHandler handler) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size >= MMAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+                ByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                lines(map, 0, (int) size, true, handler);
+                return;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(Math.max(size, 1), CHUNK));
+            while (true) {
+                int n = ch.read(buf);
+                boolean eof = n < 0;
+                int limit = buf.position();
+                int consumed = lines(buf, 0, limit, eof, handler);
+                if (eof) return;
+                // keep the unfinished tail, grow if a single line fills the whole buffer
+                int pending = limit - consumed;
+                if (pending == buf.capacity()) {
+                    ByteBuffer grown = ByteBuffer.allocate(buf.capacity() * 2);
+                    grown.put(buf.array(), 0, pending);
+                    buf = grown;
+                } else {
+                    System.arraycopy(buf.array(), consumed, buf.array(), 0, pending);
+                    buf.position(pending);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands every complete line in [from, limit) to handler and returns where the first
+     * unfinished one starts. At eof the rest counts as a line too.
+     */
+    private int lines(ByteBuffer buf, int from, int limit, boolean eof, LineHandler handler) {
+        int start = from;
+        for (int i = from; i < limit; i++) {
+            byte b = buf.get(i);
+            if (b != '\n' && b != '\r') continue;
+            if (b == '\r' && i + 1 == limit && !eof) return start; // might be the first half of \r\n
+            lineNumber++;
+            handler.line(buf, start, i);
+            if (b == '\r' && i + 1 < limit && buf.get(i + 1) == '\n') i++;
+            start = i + 1;
+        }
+        if (eof && start < limit) {
+            lineNumber++;
+            handler.line(buf, start, limit);
+            return limit;
+        }
+        return start;
+    }
+
+    private static int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) if (buf.get(i) == b) return i;
+        return -1;
+    }
+
+    private String string(ByteBuffer buf, int from, int to) {
+        int len = to - from;
+        if (buf.hasArray()) return new String(buf.array(), buf.arrayOffset() + from, len, StandardCharsets.UTF_8);
+        if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+        buf.get(from, scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // ---------------- Fields ----------------
+
+    /** The streak field; 0 (reported) where Integer.parseInt would have failed. */
+    private int parseInt(ByteBuffer buf, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buf.get(i) == '-' || buf.get(i) == '+')) negative = buf.get(i++) == '-';
+        long value = 0;
+        boolean ascii = i < to && to - i <= 10;
+        for (; ascii && i < to; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) ascii = false;
+            else value = value * 10 + d;
+        }
+        if (negative) value = -value;
+        if (ascii && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) return (int) value;
+        try {
+            // the slow path only decides what to report; parseInt also takes non-ASCII digits
+            return Integer.parseInt(string(buf, from, to));
+        } catch (NumberFormatException e) {
+            problems.malformed(file, lineNumber, "bad streak, using 0");
+            return 0;
+        }
+    }
+
+    private static boolean isInt(ByteBuffer buf, int from, int to) {
+        if (from >= to) return false;
+        for (int i = from; i < to; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') return false;
+        }
+        return true;
+    }
+
+    /** LocalDate.parse for the usual yyyy-MM-dd; other ISO forms (signed or long years) go through it. */
+    private LocalDate parseDate(ByteBuffer buf, int from, int to) {
+        if (to - from == 10 && buf.get(from + 4) == '-' && buf.get(from + 7) == '-'
+                && isInt(buf, from, from + 4) && isInt(buf, from + 5, from + 7) && isInt(buf, from + 8, to)) {
+            try {
+                return LocalDate.of(digits(buf, from, from + 4), digits(buf, from + 5, from + 7), digits(buf, from + 8, to));
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+        try {
+            return LocalDate.parse(string(buf, from, to));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(ByteBuffer buf, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) v = v * 10 + buf.get(i) - '0';
+        return v;
+    }
+}
@@ -0,0 +1,295 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import javax.swing.*;
+
+/**
+ * GitHub-style calendar heatmap of completions: an "All habits" row shaded by the share of
+ * habits done each day, then one row per habit in the order and filter of a row sorter, one
+ * tile per year (habits.heatmapYears, default 3, ending with the current one).
+ *
+ * Each habit-year is drawn once, on a background thread, into a cached indexed image; painting
+ * only blits the cached tiles. A tile remembers the per-day levels it shows, so a store event
+ * re-derives the levels of that habit's few tiles (and the All row) and only tiles whose days
+ * actually changed are drawn again. Tiles are rendered when they are painted, newest request
+ * first, and a request whose tile has scrolled out of view by then is dropped.
+ */
+public class HabitHeatmap extends JComponent implements Scrollable, HabitStore.Listener {
+
+    private static final int YEARS = Math.max(1, Integer.getInteger("habits.heatmapYears", 3));
+    private static final int MAX_TILES = Integer.getInteger("habits.heatmapTiles", 2048); // ~14 KB each
+
+    private static final int CELL = 5;
+    private static final int STEP = CELL + 1;
+    private static final int TILE_W = 54 * STEP; // a year touches at most 54 weeks
+    private static final int TILE_H = 7 * STEP;
+    private static final int NAME_W = 160;
+    private static final int TILE_GAP = 12;
+    private static final int ROW_H = TILE_H + 8;
+    private static final int HEADER_H = 20;
+
+    private static final int ALL = -1; // id of the aggregate row
+
+    // Day levels; drawn as palette index level + 1, index 0 is the background.
+    private static final byte FUTURE = 0;
+    private static final byte MISSED = 1;
+    private static final byte DONE = 5; // 2..5 shade the All row by quarter
+    private static final IndexColorModel PALETTE = palette(0x000000, 0x000000, 0x2b2b2b, 0x0e4429, 0x006d32, 0x26a641, 0x39d353);
+
+    private final HabitStore store;
+    private final RowSorter<?> sorter;
+    private final IntFunction<HabitStore.Habit> habitAt;
+
+    private final Map<Long, Tile> tiles = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) { return size() > MAX_TILES; }
+    };
+    private final ThreadPoolExecutor renderer;
+    private volatile int generation; // bumped per paint; tiles note the last paint that showed them
+    private long today = LocalDate.now().toEpochDay();
+
+    public HabitHeatmap(HabitStore store, RowSorter<?> sorter, IntFunction<HabitStore.Habit> habitAt) {
+        this.store = store;
+        this.sorter = sorter;
+        this.habitAt = habitAt;
+        // one thread taking the latest request first: that is the tile the user is looking at
+        renderer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingDeque<Runnable>() {
+            @Override
+            public boolean offer(Runnable r) { return offerFirst(r); }
+        }, r -> {
+            Thread t = new Thread(r, "heatmap-render");
+            t.setDaemon(true);
+            return t;
+        });
+        setOpaque(true);
+        setBackground(Color.black);
+        setForeground(Color.white);
+        store.addListener(this);
+        sorter.addRowSorterListener(e -> {
+            revalidate();
+            repaint();
+        });
+    }
+
+    /** One habit-year. Fields are EDT-only except paintedAt. */
+    private static final class Tile {
+        final int id;
+        final int year;
+        byte[] levels;       // what the tile should show
+        byte[] rendering;    // levels of the render in flight, if any
+        byte[] shown;        // levels the image was drawn from
+        BufferedImage image;
+        volatile int paintedAt;
+
+        Tile(int id, int year, byte[] levels) {
+            this.id = id;
+            this.year = year;
+            this.levels = levels;
+        }
+    }
+
+    private static long key(int id, int year) { return (id + 1L) << 20 | year; }
+
+    // ---------------- Levels ----------------
+    private byte[] levels(int id, int year) {
+        LocalDate first = LocalDate.of(year, 1, 1);
+        long day = first.toEpochDay();
+        byte[] levels = new byte[first.lengthOfYear()];
+        HabitHistory history = store.history();
+        int habits = store.size();
+        for (int i = 0; i < levels.length; i++, day++) {
+            if (day > today) levels[i] = FUTURE;
+            else if (id == ALL) levels[i] = share(history.completedCount(day), habits);
+            else levels[i] = history.completedOn(id, day) ? DONE : MISSED;
+        }
+        return levels;
+    }
+
+    private static byte share(int done, int habits) {
+        if (done <= 0 || habits <= 0) return MISSED;
+        return (byte) (MISSED + 1 + Math.min(3, (done * 4L - 1) / habits));
+    }
+
+    /** Re-derives the levels of id's cached tiles; only tiles whose days differ are drawn again. */
+    private void refresh(int id) {
+        int last = LocalDate.ofEpochDay(today).getYear();
+        for (int year = last - YEARS + 1; year <= last; year++) {
+            Tile t = tiles.get(key(id, year));
+            if (t == null) continue;
+            byte[] levels = levels(id, year);
+            if (!Arrays.equals(levels, t.levels)) t.levels = levels;
+        }
+        repaint();
+    }
+
+    private void refreshAll() {
+        for (Tile t : tiles.values().toArray(new Tile[0])) {
+            byte[] levels = levels(t.id, t.year);
+            if (!Arrays.equals(levels, t.levels)) t.levels = levels;
+        }
+        repaint();
+    }
+
+    // ---------------- Rendering ----------------
+    private Tile tile(int id, int year) {
+        long key = key(id, year);
+        Tile t = tiles.get(key);
+        if (t == null) {
+            t = new Tile(id, year, levels(id, year));
+            tiles.put(key, t);
+        }
+        return t;
+    }
+
+    private void requestRender(Tile t) {
+        if (t.shown == t.levels || t.rendering == t.levels) return;
+        byte[] want = t.levels;
+        t.rendering = want;
+        renderer.execute(() -> {
+            boolean visible = generation - t.paintedAt <= 1;
+            BufferedImage image = visible ? render(want, t.year) : null;
+            SwingUtilities.invokeLater(() -> {
+                if (t.rendering == want) t.rendering = null;
+                if (image == null) return; // scrolled away; asked for again when painted
+                t.image = image;
+                t.shown = want;
+                repaint();
+            });
+        });
+    }
+
+    /** Weeks run left to right, Monday on top; future days stay background. */
+    private static BufferedImage render(byte[] levels, int year) {
+        BufferedImage image = new BufferedImage(TILE_W, TILE_H, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int offset = LocalDate.of(year, 1, 1).getDayOfWeek().getValue() - 1;
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == FUTURE) continue;
+            int cell = i + offset;
+            int at = cell % 7 * STEP * TILE_W + cell / 7 * STEP;
+            byte pixel = (byte) (levels[i] + 1);
+            for (int y = 0; y < CELL; y++, at += TILE_W) Arrays.fill(pixels, at, at + CELL, pixel);
+        }
+        return image;
+    }
+
+    private static IndexColorModel palette(int... rgbs) {
+        byte[] r = new byte[rgbs.length];
+        byte[] g = new byte[rgbs.length];
+        byte[] b = new byte[rgbs.length];
+        for (int i = 0; i < rgbs.length; i++) {
+            r[i] = (byte) (rgbs[i] >> 16);
+            g[i] = (byte) (rgbs[i] >> 8);
+            b[i] = (byte) rgbs[i];
+        }
+        return new IndexColorModel(8, rgbs.length, r, g, b);
+    }
+
+    // ---------------- Painting ----------------
+    private int rowCount() { return 1 + sorter.getViewRowCount(); }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(NAME_W + YEARS * (TILE_W + TILE_GAP), HEADER_H + rowCount() * ROW_H);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long now = LocalDate.now().toEpochDay();
+        if (now != today) { // days that were in the future have happened
+            today = now;
+            refreshAll();
+        }
+        int paint = ++generation;
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setFont(getFont());
+        g.setColor(getForeground());
+        FontMetrics fm = g.getFontMetrics();
+
+        int lastYear = LocalDate.ofEpochDay(today).getYear();
+        for (int k = 0; k < YEARS; k++) {
+            g.drawString(Integer.toString(lastYear - YEARS + 1 + k), NAME_W + k * (TILE_W + TILE_GAP), fm.getAscent());
+        }
+
+        int rows = rowCount();
+        int first = Math.max(0, (clip.y - HEADER_H) / ROW_H);
+        int last = Math.min(rows - 1, (clip.y + clip.height - HEADER_H) / ROW_H);
+        for (int row = first; row <= last; row++) {
+            int y = HEADER_H + row * ROW_H;
+            HabitStore.Habit h = row == 0 ? null : habitAt.apply(sorter.convertRowIndexToModel(row - 1));
+            int id = h == null ? ALL : h.id();
+
+            Graphics name = g.create(0, y, NAME_W - 8, ROW_H);
+            name.drawString(h == null ? "All habits" : h.name(), 0, (TILE_H + fm.getAscent()) / 2);
+            name.dispose();
+
+            for (int k = 0; k < YEARS; k++) {
+                int x = NAME_W + k * (TILE_W + TILE_GAP);
+                if (x > clip.x + clip.width || x + TILE_W < clip.x) continue;
+                Tile t = tile(id, lastYear - YEARS + 1 + k);
+                t.paintedAt = paint;
+                requestRender(t);
+                if (t.image != null) {
+                    g.drawImage(t.image, x, y, null);
+                } else {
+                    g.setColor(Color.darkGray);
+                    g.drawRect(x, y, TILE_W - 2, TILE_H - 2);
+                    g.setColor(getForeground());
+                }
+            }
+        }
+    }
+
+    // ---------------- Scrollable ----------------
+    @Override
+    public Dimension getPreferredScrollableViewportSize() { return getPreferredSize(); }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? ROW_H : STEP * 4;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visible.height - ROW_H : visible.width - TILE_W / 2;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() { return false; }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() { return false; }
+
+    // ---------------- Store events ----------------
+    @Override
+    public void habitAdded(HabitStore.Habit habit) { refresh(ALL); }
+
+    @Override
+    public void habitChanged(HabitStore.Habit habit) {
+        refresh(habit.id());
+        refresh(ALL);
+    }
+
+    @Override
+    public void habitRemoved(HabitStore.Habit habit, int index) {
+        tiles.values().removeIf(t -> t.id == habit.id());
+        refresh(ALL);
+    }
+
+    @Override
+    public void habitsAdded(int fromIndex, int toIndex) { refresh(ALL); }
+
+    @Override
+    public void habitsChanged() { refreshAll(); }
+}
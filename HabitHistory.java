@@ -0,0 +1,341 @@
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Day-by-day completion history, one bitset per habit id. Bit i of a habit's set stands for
+ * epoch day base + i, where base is a multiple of 64 so days map straight onto long words.
+ * Queries walk words and runs, never individual days, so their cost follows the requested
+ * range rather than how many years of history a habit has.
+ *
+ * Not thread-safe: owned by HabitStore on the EDT.
+ */
+public class HabitHistory {
+
+    private static final int MAGIC = 0x48484953; // "HHIS"
+    private static final int VERSION = 3; // 2 had no key kind (always names), 1 also wrote them with writeUTF
+    private static final int BY_NAME = 0;
+    private static final int BY_ID = 1;
+
+    private long[][] words = new long[16][];
+    private long[] base = new long[16];
+
+    // Completions per epoch day across all habits, from countsBase on; built on the first
+    // completedCount call and adjusted by every update after that.
+    private int[] dayCounts;
+    private long countsBase;
+
+    // ---------------- Updates ----------------
+    public void set(int id, long epochDay, boolean done) {
+        if (dayCounts != null && completedOn(id, epochDay) != done) tallyDay(epochDay, done ? 1 : -1);
+        ensureCapacity(id);
+        if (words[id] == null) {
+            if (!done) return;
+            base[id] = Math.floorDiv(epochDay, 64) * 64;
+            words[id] = new long[1];
+        }
+        if (epochDay < base[id]) {
+            if (!done) return;
+            long newBase = Math.floorDiv(epochDay, 64) * 64;
+            int shift = (int) ((base[id] - newBase) / 64);
+            long[] grown = new long[words[id].length + shift];
+            System.arraycopy(words[id], 0, grown, shift, words[id].length);
+            words[id] = grown;
+            base[id] = newBase;
+        }
+        int w = (int) ((epochDay - base[id]) >>> 6);
+        if (w >= words[id].length) {
+            if (!done) return;
+            words[id] = Arrays.copyOf(words[id], Math.max(w + 1, words[id].length * 2));
+        }
+        long bit = 1L << (epochDay - base[id]);
+        if (done) words[id][w] |= bit;
+        else words[id][w] &= ~bit;
+    }
+
+    public void remove(int id) {
+        tally(id, -1);
+        if (id < words.length) words[id] = null;
+    }
+
+    /** Takes over otherId's days from other as id's; returns false if they were the same already. */
+    public boolean adopt(int id, HabitHistory other, int otherId) {
+        long[] w = otherId < other.words.length ? other.words[otherId] : null;
+        long from = Math.min(firstDay(id), other.firstDay(otherId));
+        long to = Math.max(endDay(id), other.endDay(otherId));
+        boolean same = true;
+        for (long d = from; same && d < to; d += 64) same = word(id, d) == other.word(otherId, d);
+        if (same) return false;
+        tally(id, -1);
+        ensureCapacity(id);
+        words[id] = w == null ? null : w.clone();
+        base[id] = w == null ? 0 : other.base[otherId];
+        tally(id, 1);
+        return true;
+    }
+
+    /** A separate history holding copies of just these habits, for reading on another thread. */
+    public HabitHistory copyOf(int[] ids) {
+        HabitHistory copy = new HabitHistory();
+        for (int id : ids) {
+            if (id >= words.length || words[id] == null) continue;
+            copy.ensureCapacity(id);
+            copy.words[id] = words[id].clone();
+            copy.base[id] = base[id];
+        }
+        return copy;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < words.length) return;
+        int n = Math.max(id + 1, words.length * 2);
+        words = Arrays.copyOf(words, n);
+        base = Arrays.copyOf(base, n);
+    }
+
+    // ---------------- Queries ----------------
+    public boolean completedOn(int id, long epochDay) {
+        return (word(id, epochDay) >>> (epochDay & 63) & 1) != 0;
+    }
+
+    /** The 64 days from fromDay on as bits, fromDay in bit 0. */
+    public long days64(int id, long fromDay) {
+        int shift = (int) (fromDay & 63);
+        long low = word(id, fromDay) >>> shift;
+        return shift == 0 ? low : low | word(id, fromDay + 64) << (64 - shift);
+    }
+
+    /** Number of completed days in [fromDay, toDay]. */
+    public int countCompleted(int id, long fromDay, long toDay) {
+        int count = 0;
+        for (long p = fromDay; p <= toDay; ) {
+            int avail = (int) Math.min(64 - (p & 63), toDay - p + 1);
+            count += Long.bitCount(window(id, p, avail));
+            p += avail;
+        }
+        return count;
+    }
+
+    /** Share of the lastDays days ending with today (inclusive) that were completed. */
+    public double completionRate(int id, long today, int lastDays) {
+        if (lastDays <= 0) return 0;
+        return countCompleted(id, today - lastDays + 1, today) / (double) lastDays;
+    }
+
+    /** Every completed epoch day, ascending. */
+    public long[] completedDays(int id) {
+        if (id >= words.length || words[id] == null) return new long[0];
+        long[] w = words[id];
+        int n = 0;
+        for (long x : w) n += Long.bitCount(x);
+        long[] days = new long[n];
+        n = 0;
+        for (int i = 0; i < w.length; i++) {
+            for (long x = w[i]; x != 0; x &= x - 1) days[n++] = base[id] + i * 64L + Long.numberOfTrailingZeros(x);
+        }
+        return days;
+    }
+
+    /** Longest run of consecutive completed days inside [fromDay, toDay]. */
+    public int longestStreak(int id, long fromDay, long toDay) {
+        int best = 0;
+        int run = 0;
+        for (long p = fromDay; p <= toDay; ) {
+            int avail = (int) Math.min(64 - (p & 63), toDay - p + 1);
+            long w = window(id, p, avail);
+            if (w == 0) {
+                run = 0;
+                p += avail;
+                continue;
+            }
+            int ones = Math.min(Long.numberOfTrailingZeros(~w), avail);
+            if (ones > 0) {
+                run += ones;
+                best = Math.max(best, run);
+                p += ones;
+                if (ones < avail) run = 0; // the next day in this word is a miss
+            } else {
+                run = 0;
+                p += Long.numberOfTrailingZeros(w);
+            }
+        }
+        return best;
+    }
+
+    /** Longest run over the habit's whole recorded history. */
+    public int longestStreak(int id) {
+        if (id >= words.length || words[id] == null) return 0;
+        return longestStreak(id, base[id], base[id] + (long) words[id].length * 64 - 1);
+    }
+
+    /** Longest run of consecutive periods of rule that met its quota, as the streak counts them. */
+    public int longestStreak(int id, Recurrence rule) {
+        if (rule.equals(Recurrence.DAILY)) return longestStreak(id);
+        if (id >= words.length || words[id] == null) return 0;
+        long end = endDay(id);
+        int best = 0;
+        int run = 0;
+        for (long p = rule.latestPeriodStart(firstDay(id)); p < end; p = rule.nextPeriodStart(p)) {
+            if (countCompleted(id, p, rule.periodEnd(p)) >= rule.quota()) best = Math.max(best, ++run);
+            else run = 0;
+        }
+        return best;
+    }
+
+    /** Consecutive completed days ending with today, or with yesterday if today is still open. */
+    public int currentStreak(int id, long today) {
+        long end = completedOn(id, today) ? today : today - 1;
+        int run = 0;
+        for (long p = end; ; ) {
+            int avail = (int) Math.min((p & 63) + 1, p - firstDay(id) + 1);
+            if (avail <= 0) return run;
+            long start = p - avail + 1;
+            long w = window(id, start, avail) << (64 - avail); // newest day in the top bit
+            int ones = Math.min(Long.numberOfLeadingZeros(~w), avail);
+            run += ones;
+            if (ones < avail) return run;
+            p = start - 1;
+        }
+    }
+
+    /** Number of habits that completed epochDay. The first call counts every habit's days once. */
+    public int completedCount(long epochDay) {
+        if (dayCounts == null) {
+            dayCounts = new int[0];
+            for (int id = 0; id < words.length; id++) tally(id, 1);
+        }
+        long i = epochDay - countsBase;
+        return i >= 0 && i < dayCounts.length ? dayCounts[(int) i] : 0;
+    }
+
+    /** Adds (delta 1) or takes away (delta -1) every completed day of id from the day counts. */
+    private void tally(int id, int delta) {
+        if (dayCounts == null || id >= words.length || words[id] == null) return;
+        long[] w = words[id];
+        for (int i = 0; i < w.length; i++) {
+            for (long x = w[i]; x != 0; x &= x - 1) tallyDay(base[id] + i * 64L + Long.numberOfTrailingZeros(x), delta);
+        }
+    }
+
+    private void tallyDay(long epochDay, int delta) {
+        if (dayCounts.length == 0) countsBase = Math.floorDiv(epochDay, 64) * 64;
+        if (epochDay < countsBase) {
+            long newBase = Math.floorDiv(epochDay, 64) * 64;
+            int shift = (int) (countsBase - newBase);
+            int[] grown = new int[dayCounts.length + shift];
+            System.arraycopy(dayCounts, 0, grown, shift, dayCounts.length);
+            dayCounts = grown;
+            countsBase = newBase;
+        }
+        int i = (int) (epochDay - countsBase);
+        if (i >= dayCounts.length) dayCounts = Arrays.copyOf(dayCounts, Math.max(i + 64, dayCounts.length * 2));
+        dayCounts[i] += delta;
+    }
+
+    private long firstDay(int id) {
+        return id < words.length && words[id] != null ? base[id] : Long.MAX_VALUE;
+    }
+
+    private long endDay(int id) {
+        return id < words.length && words[id] != null ? base[id] + (long) words[id].length * 64 : Long.MIN_VALUE;
+    }
+
+    private long word(int id, long epochDay) {
+        if (id >= words.length || words[id] == null || epochDay < base[id]) return 0;
+        long w = (epochDay - base[id]) >>> 6;
+        return w < words[id].length ? words[id][(int) w] : 0;
+    }
+
+    /** avail bits of history starting at day p, shifted down to bit 0; p..p+avail-1 stay in one word. */
+    private long window(int id, long p, int avail) {
+        long w = word(id, p) >>> (p & 63);
+        return avail == 64 ? w : w & ((1L << avail) - 1);
+    }
+
+    // ---------------- Persistence ----------------
+    // Binary: a header saying how entries are keyed, then per habit the key, base day and words.
+    // Keyed by name (int length + UTF-8) like habits_meta.txt next to the text snapshot, whose
+    // ids are handed out afresh on every load; by id next to habits.bin, which keeps them, so
+    // loading it never decodes a name.
+
+    public interface NameLookup {
+        /** Returns the id for the next unclaimed habit with this name, or -1. */
+        int claim(String name);
+    }
+
+    public interface IdLookup {
+        /** Returns whether the file's ids are this store's and id is a live habit. */
+        boolean has(int id);
+    }
+
+    public interface Names {
+        String nameOf(int id);
+    }
+
+    /** Keyed by name, or by id when names is null. */
+    public byte[] toBytes(int[] ids, Names names) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int count = 0;
+            for (int id : ids) if (id < words.length && words[id] != null) count++;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names == null ? BY_ID : BY_NAME);
+            out.writeInt(count);
+            for (int id : ids) {
+                if (id >= words.length || words[id] == null) continue;
+                long[] w = words[id];
+                int used = w.length;
+                while (used > 0 && w[used - 1] == 0) used--;
+                if (names == null) {
+                    out.writeInt(id);
+                } else {
+                    byte[] name = names.nameOf(id).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                }
+                out.writeLong(base[id]);
+                out.writeInt(used);
+                for (int i = 0; i < used; i++) out.writeLong(w[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String readName(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("corrupt habit history: name length " + length);
+        byte[] name = new byte[length];
+        in.readFully(name);
+        return new String(name, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void load(File file, NameLookup byName, IdLookup byId) {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a habit history file: " + file);
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) throw new IOException("unsupported habit history version " + version);
+            int keys = version < 3 ? BY_NAME : in.readInt();
+            if (keys != BY_NAME && keys != BY_ID) throw new IOException("corrupt habit history: key kind " + keys);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int key = keys == BY_ID ? in.readInt() : -1;
+                String name = keys == BY_ID ? null : version == 1 ? in.readUTF() : readName(in);
+                long b = in.readLong();
+                int used = in.readInt();
+                long[] w = new long[Math.max(1, used)];
+                for (int j = 0; j < used; j++) w[j] = in.readLong();
+                int id = keys == BY_ID ? (byId.has(key) ? key : -1) : byName.claim(name);
+                if (id < 0) continue;
+                tally(id, -1);
+                ensureCapacity(id);
+                words[id] = w;
+                base[id] = b;
+                tally(id, 1);
+            }
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+}
@@ -0,0 +1,368 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only event log that sits on top of the habits.txt / habits_meta.txt snapshot.
+ * Every change is one short line, so recording a click costs the same no matter how many
+ * habits there are. Startup loads the snapshot and replays the journal on top of it;
+ * compaction folds the journal back into a fresh snapshot.
+ *
+ * When other processes append to the same file (see HabitProfile.enableLiveReload), the
+ * journal remembers how far it has read or written and readNew() returns only what was
+ * added after that.
+ */
+public class HabitJournal {
+
+    // Record layout, one per line. Names always go last so they may contain '|'.
+    //   A|<checked>|<name>               add habit at the end of the list
+    //   I|<index>|<checked>|<name>       add habit at index (another process's add, rebased; never on disk)
+    //   C|<index>|<checked>              check / uncheck habit at index
+    //   R|<index>|<name>                 rename habit at index (its streak follows it)
+    //   D|<index>                        delete habit at index (its streak goes with it)
+    //   U|<day>                          uncheck every habit (daily reset for day; plain U in older journals)
+    //   T|<index>|<streak>|<lastCompleted> set streak for habit at index, date may be empty
+    //   S|<streak>|<lastCompleted>|<name> set streak for every habit with that name (older journals)
+    //   H|<index>|<day>|<done>           mark day as done / not done in the habit's history
+    //   Q|<index>|<day>|<rule>           set the habit's Recurrence on day (streak recounted)
+
+    public interface Handler {
+        void add(String name, boolean checked);
+        void insert(int index, String name, boolean checked);
+        void check(int index, boolean checked);
+        void rename(int index, String name);
+        void delete(int index);
+        void uncheckAll(LocalDate day);
+        void streak(int index, int streak, LocalDate lastCompleted);
+        void streak(String name, int streak, LocalDate lastCompleted);
+        void history(int index, LocalDate day, boolean done);
+        void recurrence(int index, Recurrence rule, LocalDate since);
+    }
+
+    private final File file;
+    private final File rotatedFile;
+    private final File commitFile;                        // lists a complete staged snapshot
+    private final List<File> staged = new ArrayList<>(); // snapshot files written since rotate()
+    private Writer writer;
+    private long size; // bytes of the live file this process has read or written
+
+    public HabitJournal(File file) {
+        this.file = file;
+        this.rotatedFile = new File(file.getPath() + ".old");
+        this.commitFile = new File(file.getPath() + ".commit");
+    }
+
+    // ---------------- Records ----------------
+    public static String add(String name, boolean checked) { return "A|" + (checked ? "1" : "0") + "|" + name; }
+
+    public static String check(int index, boolean checked) { return "C|" + index + "|" + (checked ? "1" : "0"); }
+
+    public static String rename(int index, String name) { return "R|" + index + "|" + name; }
+
+    public static String delete(int index) { return "D|" + index; }
+
+    public static String uncheckAll(LocalDate day) { return "U|" + day; }
+
+    public static String streak(int index, int streak, LocalDate lastCompleted) {
+        return "T|" + index + "|" + streak + "|" + (lastCompleted == null ? "" : lastCompleted.toString());
+    }
+
+    public static String history(int index, LocalDate day, boolean done) {
+        return "H|" + index + "|" + day + "|" + (done ? "1" : "0");
+    }
+
+    public static String recurrence(int index, Recurrence rule, LocalDate since) {
+        return "Q|" + index + "|" + since + "|" + rule;
+    }
+
+    // ---------------- Recording ----------------
+
+    /**
+     * Appends a batch of records with a single flush. If that fails, whatever part of the batch
+     * reached the file is cut off again, so the batch can be retried without doubling records.
+     */
+    public void append(List<String> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        long start = System.nanoTime();
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            }
+            for (String record : batch) {
+                writer.write(record);
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            discardPartial();
+            throw e;
+        }
+        long newSize = file.length();
+        HabitMetrics.INSTANCE.bytesWritten(newSize - size);
+        HabitMetrics.INSTANCE.journalRecords(batch.size());
+        HabitMetrics.INSTANCE.journalAppend.stop(start);
+        size = newSize;
+    }
+
+    private void discardPartial() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // the stream is dropped either way
+        }
+        writer = null;
+        if (file.length() <= size) return;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ch.truncate(size);
+        } catch (IOException ignored) {
+            // readers skip a torn last record anyway
+        }
+    }
+
+    // ---------------- Compaction ----------------
+    // rotate() and commit() bracket a snapshot write; no records may be appended in between.
+    // The snapshot is several files, and replaying the journal over some new and some old ones
+    // would apply positional records twice, so they are staged next to their targets and only
+    // swapped in once all of them are complete. The commit file listing them is written
+    // atomically first: from then on the new snapshot is the truth, and recover() finishes the
+    // swap after a crash instead of replaying the journal it covers.
+
+    /**
+     * Moves the live journal aside so a crash while the snapshot is written still replays it.
+     * A rotated file left over from an earlier crash is kept as is; commit() removes both.
+     */
+    public void rotate() throws IOException {
+        close();
+        staged.clear(); // left by a compaction that failed; staged again
+        if (!rotatedFile.exists() && file.exists()) {
+            Files.move(file.toPath(), rotatedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /** Writes one file of the snapshot next to target; commit() swaps it in with the rest. */
+    public void stage(File target, List<String> lines) throws IOException {
+        writeLines(staging(target), lines);
+        staged.add(target);
+    }
+
+    /** Binary variant of stage. */
+    public void stage(File target, byte[] bytes) throws IOException {
+        writeBytes(staging(target), bytes);
+        staged.add(target);
+    }
+
+    private static File staging(File target) { return new File(target.getPath() + ".next"); }
+
+    /** Called once the snapshot covering everything journaled so far is staged. */
+    public void commit() throws IOException {
+        if (!staged.isEmpty()) {
+            List<String> targets = new ArrayList<>(staged.size());
+            for (File f : staged) targets.add(f.getPath());
+            writeSnapshot(commitFile, targets);
+            swapStaged(targets);
+            staged.clear();
+        }
+        Files.deleteIfExists(rotatedFile.toPath());
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(commitFile.toPath());
+        size = 0;
+    }
+
+    /**
+     * Finishes a compaction that crashed after its snapshot was complete: swaps in the files
+     * still staged and drops the journal the snapshot covers. Call before loading the snapshot.
+     */
+    public void recover() throws IOException {
+        if (!commitFile.exists()) return;
+        swapStaged(Files.readAllLines(commitFile.toPath(), StandardCharsets.UTF_8));
+        close();
+        Files.deleteIfExists(rotatedFile.toPath());
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(commitFile.toPath());
+        size = 0;
+    }
+
+    /** Moves each staged file over its target; ones already moved are skipped. */
+    private static void swapStaged(List<String> targets) throws IOException {
+        for (String path : targets) {
+            File next = staging(new File(path));
+            if (next.exists()) Files.move(next.toPath(), new File(path).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // ---------------- Sharing ----------------
+    // Only called with the directory lock held, so no other process is midway through a write.
+
+    /** Complete records appended to the live file after what this process has read or written. */
+    public List<String> readNew() throws IOException {
+        long length = file.length();
+        if (length <= size) return new ArrayList<>();
+        ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(length - size));
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (buf.hasRemaining() && ch.read(buf, size + buf.position()) >= 0) { }
+        }
+        int end = completeLength(buf.array(), buf.position());
+        size += end;
+        return lines(buf.array(), end);
+    }
+
+    /** Another process compacted: the live file is a new one, to be read from its start. */
+    public void reset() throws IOException {
+        close();
+        size = 0;
+    }
+
+    /** Writes lines to a temp file next to target and swaps it in atomically. */
+    public static void writeSnapshot(File target, List<String> lines) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        writeLines(tmp, lines);
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Binary variant of writeSnapshot, same temp file and atomic swap. */
+    public static void writeSnapshot(File target, byte[] bytes) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        writeBytes(tmp, bytes);
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeLines(File file, List<String> lines) throws IOException {
+        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                w.write(line);
+                w.newLine();
+            }
+        }
+        HabitMetrics.INSTANCE.bytesWritten(file.length());
+    }
+
+    private static void writeBytes(File file, byte[] bytes) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+        HabitMetrics.INSTANCE.bytesWritten(bytes.length);
+    }
+
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    // ---------------- Replay ----------------
+
+    /**
+     * Replays an interrupted compaction (if any) and then the live journal. Returns the
+     * number of records applied.
+     */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public int replay(Handler handler) {
+        int applied = 0;
+        for (File f : new File[]{rotatedFile, file}) {
+            if (!f.exists()) continue;
+            try {
+                byte[] bytes = Files.readAllBytes(f.toPath());
+                applied += apply(lines(bytes, bytes.length), handler);
+                if (f == file) size = completeLength(bytes, bytes.length);
+            } catch (IOException e) { e.printStackTrace(); }
+        }
+        return applied;
+    }
+
+    /** Applies records in order and returns how many took effect. */
+    public static int apply(List<String> records, Handler handler) {
+        int applied = 0;
+        for (String line : records) {
+            try {
+                if (apply(line, handler)) applied++;
+            } catch (RuntimeException ignored) {
+                // torn or unknown record, e.g. from a crash mid-write
+            }
+        }
+        return applied;
+    }
+
+    /** Splits UTF-8 bytes [0, end) into lines like BufferedReader.readLine(). */
+    private static List<String> lines(byte[] bytes, int end) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] != '\n' && bytes[i] != '\r') continue;
+            lines.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+            if (bytes[i] == '\r' && i + 1 < end && bytes[i + 1] == '\n') i++;
+            start = i + 1;
+        }
+        if (start < end) lines.add(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+        return lines;
+    }
+
+    /** Length up to and including the last line end; a record still being written stays out. */
+    private static int completeLength(byte[] bytes, int end) {
+        while (end > 0 && bytes[end - 1] != '\n') end--;
+        return end;
+    }
+
+    private static boolean apply(String line, Handler h) {
+        if (line.isEmpty()) return false;
+        switch (line.charAt(0)) {
+            case 'A': {
+                String[] p = line.split("\\|", 3);
+                h.add(p[2], p[1].equals("1"));
+                return true;
+            }
+            case 'I': {
+                String[] p = line.split("\\|", 4);
+                h.insert(Integer.parseInt(p[1]), p[3], p[2].equals("1"));
+                return true;
+            }
+            case 'C': {
+                String[] p = line.split("\\|", 3);
+                h.check(Integer.parseInt(p[1]), p[2].equals("1"));
+                return true;
+            }
+            case 'R': {
+                String[] p = line.split("\\|", 3);
+                h.rename(Integer.parseInt(p[1]), p[2]);
+                return true;
+            }
+            case 'D': {
+                String[] p = line.split("\\|", 2);
+                h.delete(Integer.parseInt(p[1]));
+                return true;
+            }
+            case 'U':
+                h.uncheckAll(line.length() > 2 ? LocalDate.parse(line.substring(2)) : null);
+                return true;
+            case 'T': {
+                String[] p = line.split("\\|", 4);
+                h.streak(Integer.parseInt(p[1]), Integer.parseInt(p[2]), p[3].isEmpty() ? null : LocalDate.parse(p[3]));
+                return true;
+            }
+            case 'S': {
+                String[] p = line.split("\\|", 4);
+                h.streak(p[3], Integer.parseInt(p[1]), p[2].isEmpty() ? null : LocalDate.parse(p[2]));
+                return true;
+            }
+            case 'H': {
+                String[] p = line.split("\\|", 4);
+                h.history(Integer.parseInt(p[1]), LocalDate.parse(p[2]), p[3].equals("1"));
+                return true;
+            }
+            case 'Q': {
+                String[] p = line.split("\\|", 4);
+                h.recurrence(Integer.parseInt(p[1]), Recurrence.parse(p[3]), LocalDate.parse(p[2]));
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.beans.ConstructorProperties;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters and latency histograms for the persistence and streak paths.
+ * Recording is a couple of System.nanoTime() calls and striped adds (no locks, no
+ * allocation), cheap enough to stay on for every toggle. register() publishes them as an
+ * MXBean and, with -Dhabits.metricsFile=path, also rewrites that file every
+ * habits.metricsIntervalSec seconds (default 60).
+ */
+public final class HabitMetrics implements HabitMetricsMXBean {
+
+    public static final HabitMetrics INSTANCE = new HabitMetrics();
+
+    /** Latencies bucketed by powers of two of nanoseconds, so quantiles are within 2x. */
+    public static final class Timer {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /** Records the time since startNanos, a System.nanoTime() value. */
+        public void stop(long startNanos) {
+            long nanos = Math.max(0, System.nanoTime() - startNanos);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos) - (nanos == 0 ? 0 : 1));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        TimerStats stats() {
+            long n = count.sum();
+            return new TimerStats(n, n == 0 ? 0 : totalNanos.sum() / n / 1000, quantileMicros(0.5), quantileMicros(0.99), maxNanos.get() / 1000);
+        }
+
+        /** Upper bound of the bucket holding the q-quantile, capped at the max seen. */
+        private long quantileMicros(double q) {
+            long n = 0;
+            for (int i = 0; i < 64; i++) n += buckets.get(i);
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(i >= 62 ? Long.MAX_VALUE : 2L << i, maxNanos.get()) / 1000;
+            }
+            return maxNanos.get() / 1000;
+        }
+    }
+
+    public static final class TimerStats {
+        private final long count;
+        private final long meanMicros;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        @ConstructorProperties({"count", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+        public TimerStats(long count, long meanMicros, long p50Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() { return count; }
+
+        public long getMeanMicros() { return meanMicros; }
+
+        public long getP50Micros() { return p50Micros; }
+
+        public long getP99Micros() { return p99Micros; }
+
+        public long getMaxMicros() { return maxMicros; }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + meanMicros + "us p50<=" + p50Micros + "us p99<=" + p99Micros + "us max=" + maxMicros + "us";
+        }
+    }
+
+    public final Timer loadHabits = new Timer();
+    public final Timer saveHabits = new Timer();
+    public final Timer saveStreaks = new Timer();
+    public final Timer saveHistory = new Timer();
+    public final Timer journalAppend = new Timer();
+    public final Timer updateStreak = new Timer();
+    public final Timer catchUp = new Timer();
+    public final Timer edtLatency = new Timer();
+
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder linesParsed = new LongAdder();
+    private final LongAdder journalRecords = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private boolean registered;
+
+    private HabitMetrics() {}
+
+    public void bytesWritten(long bytes) { bytesWritten.add(bytes); }
+
+    public void linesParsed(long lines) { linesParsed.add(lines); }
+
+    public void journalRecords(long records) { journalRecords.add(records); }
+
+    // ---------------- MXBean ----------------
+    @Override
+    public TimerStats getLoadHabits() { return loadHabits.stats(); }
+
+    @Override
+    public TimerStats getSaveHabits() { return saveHabits.stats(); }
+
+    @Override
+    public TimerStats getSaveStreaks() { return saveStreaks.stats(); }
+
+    @Override
+    public TimerStats getSaveHistory() { return saveHistory.stats(); }
+
+    @Override
+    public TimerStats getJournalAppend() { return journalAppend.stats(); }
+
+    @Override
+    public TimerStats getUpdateStreak() { return updateStreak.stats(); }
+
+    @Override
+    public TimerStats getCatchUp() { return catchUp.stats(); }
+
+    @Override
+    public TimerStats getEdtLatency() { return edtLatency.stats(); }
+
+    @Override
+    public long getBytesWritten() { return bytesWritten.sum(); }
+
+    @Override
+    public long getLinesParsed() { return linesParsed.sum(); }
+
+    @Override
+    public long getJournalRecords() { return journalRecords.sum(); }
+
+    @Override
+    public double getSavesPerMinute() {
+        double minutes = (System.nanoTime() - startNanos) / 60e9;
+        return minutes <= 0 ? 0 : saveHabits.count.sum() / minutes;
+    }
+
+    @Override
+    public String dump() {
+        return "# habit metrics " + Instant.now() + "\n"
+                + "loadHabits " + getLoadHabits() + "\n"
+                + "saveHabits " + getSaveHabits() + "\n"
+                + "saveStreaks " + getSaveStreaks() + "\n"
+                + "saveHistory " + getSaveHistory() + "\n"
+                + "journalAppend " + getJournalAppend() + "\n"
+                + "updateStreak " + getUpdateStreak() + "\n"
+                + "catchUp " + getCatchUp() + "\n"
+                + "edtLatency " + getEdtLatency() + "\n"
+                + "bytesWritten " + getBytesWritten() + "\n"
+                + "linesParsed " + getLinesParsed() + "\n"
+                + "journalRecords " + getJournalRecords() + "\n"
+                + "savesPerMinute " + String.format("%.2f", getSavesPerMinute()) + "\n";
+    }
+
+    // ---------------- Registration ----------------
+
+    /** Publishes the MXBean and starts the optional file dump; later calls do nothing. */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public static synchronized void register() {
+        if (INSTANCE.registered) return;
+        INSTANCE.registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("habitoclock:type=HabitMetrics"));
+        } catch (JMException e) { e.printStackTrace(); }
+
+        String path = System.getProperty("habits.metricsFile");
+        if (path == null) return;
+        File file = new File(path);
+        long interval = Long.getLong("habits.metricsIntervalSec", 60) * 1000;
+        Thread dumper = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(interval);
+                    writeDump(file);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) { e.printStackTrace(); }
+            }
+        }, "habit-metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+
+    private static void writeDump(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.writeString(tmp.toPath(), INSTANCE.dump(), StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Management view of HabitMetrics, registered as habitoclock:type=HabitMetrics. Each timer
+ * shows up in JConsole / VisualVM as a composite of count, mean, p50, p99 and max.
+ */
+public interface HabitMetricsMXBean {
+    HabitMetrics.TimerStats getLoadHabits();
+    HabitMetrics.TimerStats getSaveHabits();
+    HabitMetrics.TimerStats getSaveStreaks();
+    HabitMetrics.TimerStats getSaveHistory();
+    HabitMetrics.TimerStats getJournalAppend();
+    /** Streak update after a toggle. */
+    HabitMetrics.TimerStats getUpdateStreak();
+    /** Due-set rollover and missed-streak breaking at startup and each day boundary. */
+    HabitMetrics.TimerStats getCatchUp();
+    /** Queueing delay of the EdtWatchdog probes; empty unless the watchdog is on. */
+    HabitMetrics.TimerStats getEdtLatency();
+
+    long getBytesWritten();
+    long getLinesParsed();
+    long getJournalRecords();
+    /** Snapshot saves (compactions) per minute since startup. */
+    double getSavesPerMinute();
+
+    /** The same text the periodic dump writes. */
+    String dump();
+}
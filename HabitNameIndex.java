@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Trigram index over habit names for as-you-type filtering. Every lower-cased name is cut
+ * into overlapping three-character grams and each gram keeps the ids of the habits whose
+ * name contains it. A query looks up its own grams and only checks the habits on the
+ * shortest list, so a keystroke costs about as much as the rarest gram, not the number of
+ * habits. Typing on narrows further: when the query extends the previous one, only the
+ * previous matches are checked. Queries shorter than a gram scan the names.
+ *
+ * Each view filters through its own Filter. The store updates the index before it tells its
+ * listeners about a change, so a view re-filtering a changed row already sees the new match.
+ *
+ * Not thread-safe: the app confines it to the EDT, like the store.
+ */
+public class HabitNameIndex {
+
+    private static final int GRAM = 3;
+
+    // Open-addressing table from gram to the ids of the habits containing it, in no particular
+    // order; parallel arrays rather than a HashMap<Long, ...> so 100k names do not turn into
+    // millions of boxed keys and list objects.
+    private long[] keys = new long[1024];
+    private int[][] ids = new int[1024][];
+    private int[] sizes = new int[1024];
+    private int used;
+
+    private static final long EMPTY = -1; // chars are 16 bits, so no gram packs to this
+
+    private final HabitStore store;
+    private String[] lowerNames = new String[16]; // by id
+
+    private final List<Filter> filters = new ArrayList<>();
+
+    /** Built by HabitStore.nameIndex(), which keeps it current from then on. */
+    HabitNameIndex(HabitStore store) {
+        this.store = store;
+        Arrays.fill(keys, EMPTY);
+        for (HabitStore.Habit h : store.habits()) index(h);
+    }
+
+    /** One view's query and the ids matching it, kept up to date as habits change. */
+    public final class Filter {
+        private String query;
+        private BitSet matches;
+
+        private Filter() { }
+
+        /** False while the text is blank: everything shows. */
+        public boolean active() { return query != null; }
+
+        public boolean includes(int id) { return query == null || matches.get(id); }
+
+        /** Matches habits whose name contains text, ignoring case. */
+        public void setText(String text) {
+            String q = text.trim().toLowerCase(Locale.ROOT);
+            if (q.isEmpty()) {
+                query = null;
+                matches = null;
+                return;
+            }
+            BitSet found = new BitSet();
+            if (query != null && q.contains(query)) {
+                for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                    if (lowerNames[id].contains(q)) found.set(id);
+                }
+            } else if (q.length() >= GRAM) {
+                int shortest = -1;
+                for (int i = 0; i + GRAM <= q.length(); i++) {
+                    int slot = slot(gram(q, i));
+                    if (keys[slot] == EMPTY) {
+                        shortest = -1;
+                        break;
+                    }
+                    if (shortest < 0 || sizes[slot] < sizes[shortest]) shortest = slot;
+                }
+                for (int i = 0; shortest >= 0 && i < sizes[shortest]; i++) {
+                    int id = ids[shortest][i];
+                    if (lowerNames[id].contains(q)) found.set(id);
+                }
+            } else {
+                for (HabitStore.Habit h : store.habits()) if (lowerNames[h.id()].contains(q)) found.set(h.id());
+            }
+            query = q;
+            matches = found;
+        }
+
+        private void indexed(int id, String lower) {
+            if (query != null && lower.contains(query)) matches.set(id);
+        }
+
+        private void unindexed(int id) {
+            if (query != null) matches.clear(id);
+        }
+    }
+
+    /** A new, blank filter that follows the index from now on. */
+    public Filter newFilter() {
+        Filter f = new Filter();
+        filters.add(f);
+        return f;
+    }
+
+    private static long gram(String s, int at) {
+        return (long) s.charAt(at) << 32 | (long) s.charAt(at + 1) << 16 | s.charAt(at + 2);
+    }
+
+    /** The gram's slot, or the empty slot where it would go. */
+    private int slot(long gram) {
+        int mask = keys.length - 1;
+        int i = Long.hashCode(gram * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[i] != EMPTY && keys[i] != gram) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void add(long gram, int id) {
+        int slot = slot(gram);
+        if (keys[slot] == EMPTY) {
+            if (++used * 2 > keys.length) {
+                grow();
+                slot = slot(gram);
+            }
+            keys[slot] = gram;
+            ids[slot] = new int[2];
+        } else if (sizes[slot] == ids[slot].length) {
+            ids[slot] = Arrays.copyOf(ids[slot], sizes[slot] * 2);
+        }
+        ids[slot][sizes[slot]++] = id;
+    }
+
+    /** Removed lists keep their slot (empty), so probe chains stay intact. */
+    private void remove(long gram, int id) {
+        int slot = slot(gram);
+        if (keys[slot] == EMPTY) return;
+        int[] list = ids[slot];
+        for (int i = 0; i < sizes[slot]; i++) {
+            if (list[i] == id) {
+                list[i] = list[--sizes[slot]];
+                return;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[][] oldIds = ids;
+        int[] oldSizes = sizes;
+        keys = new long[oldKeys.length * 2];
+        ids = new int[keys.length][];
+        sizes = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            ids[slot] = oldIds[i];
+            sizes[slot] = oldSizes[i];
+        }
+    }
+
+    // ---------------- Updates ----------------
+    private void index(HabitStore.Habit h) {
+        int id = h.id();
+        if (id >= lowerNames.length) lowerNames = Arrays.copyOf(lowerNames, Math.max(id + 1, lowerNames.length * 2));
+        String lower = h.name().toLowerCase(Locale.ROOT);
+        lowerNames[id] = lower;
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            if (!firstOccurrence(lower, i)) continue; // listed once per name
+            add(gram(lower, i), id);
+        }
+        for (Filter f : filters) f.indexed(id, lower);
+    }
+
+    private void unindex(int id) {
+        String lower = lowerNames[id];
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            if (firstOccurrence(lower, i)) remove(gram(lower, i), id);
+        }
+        lowerNames[id] = null;
+        for (Filter f : filters) f.unindexed(id);
+    }
+
+    private static boolean firstOccurrence(String s, int at) {
+        for (int i = 0; i < at; i++) {
+            if (s.charAt(i) == s.charAt(at) && s.charAt(i + 1) == s.charAt(at + 1) && s.charAt(i + 2) == s.charAt(at + 2)) return false;
+        }
+        return true;
+    }
+
+    void added(HabitStore.Habit habit) { index(habit); }
+
+    void renamed(HabitStore.Habit habit) {
+        unindex(habit.id());
+        index(habit);
+    }
+
+    void removed(HabitStore.Habit habit) { unindex(habit.id()); }
+}
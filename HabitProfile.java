@@ -0,0 +1,384 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * One set of habit files and the state loaded from them: the snapshot (text or binary),
+ * history and journal in a data directory, the HabitStore on top and the PersistenceWorker
+ * writing changes back. Every change goes through here, so the desktop app and the server
+ * apply, journal and compact exactly the same way.
+ *
+ * Not thread-safe: used from one thread at a time (the EDT in the app, the profile's lock
+ * in the server).
+ *
+ * enableLiveReload() shares the directory with other processes: see Live reload below.
+ */
+public class HabitProfile {
+
+    private static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+    // how long the writer waits for a burst of changes to settle before one group commit
+    public static final long COMMIT_WINDOW_MS = Long.getLong("habits.commitWindowMs", 250);
+    // -Dhabits.format=binary keeps habits.bin instead of habits.txt + habits_meta.txt; the text
+    // files are read once to migrate and HabitSnapshot converts back
+    public static final boolean BINARY_SNAPSHOT = "binary".equals(System.getProperty("habits.format"));
+
+    private final File dir;
+    private final File habitFile;
+    private final File streakFile;
+    private final File historyFile;
+    private final File scheduleFile;
+    private final File dayFile;
+    private final File snapshotFile;
+    private final File journalFile;
+    private final boolean binary;
+    private final HabitJournal journal;
+    private final HabitStore store = new HabitStore();
+    private PersistenceWorker persistence;
+    private int journalRecords;
+    private LocalDate filesDay; // last write to the files, for checks saved before resets were dated
+
+    // live reload; owner is null while it is off
+    private Executor owner;
+    private FileChannel lockChannel;
+    private Thread watcher;
+    private List<Object> snapshotStamp; // worker thread once loaded
+
+    /** binary keeps habits.bin instead of habits.txt + habits_meta.txt (read once to migrate). */
+    public HabitProfile(File dir, boolean binary) {
+        this.dir = dir;
+        this.habitFile = new File(dir, "habits.txt");
+        this.streakFile = new File(dir, "habits_meta.txt");
+        this.historyFile = new File(dir, "habits_history.bin");
+        this.scheduleFile = new File(dir, "habits_schedule.txt");
+        this.dayFile = new File(dir, "habits_day.txt");
+        this.snapshotFile = new File(dir, "habits.bin");
+        this.binary = binary;
+        this.journalFile = new File(dir, "habits_journal.txt");
+        this.journal = new HabitJournal(journalFile);
+    }
+
+    public HabitStore store() { return store; }
+
+    // ---------------- Lifecycle ----------------
+
+    /**
+     * Loads the snapshot, replays the journal on top and starts the writer. Safe to call off
+     * the thread that later uses the profile, as long as it is handed over afterwards.
+     */
+    public void load(long commitWindowMillis) throws IOException {
+        long start = System.nanoTime();
+        boolean migrate;
+        int replayed;
+        FileLock lock = lockChannel == null ? null : lockChannel.lock();
+        try {
+            journal.recover();
+            snapshotStamp = snapshotStamp();
+            filesDay = lastWritten();
+            migrate = loadSnapshot(store);
+            replayed = store.replay(journal);
+        } finally {
+            if (lock != null) lock.release();
+        }
+        HabitMetrics.INSTANCE.loadHabits.stop(start);
+        persistence = new PersistenceWorker(journal, commitWindowMillis, owner == null ? null : new Sharing(), store.size());
+        if (owner != null) startWatcher();
+        // missed days break streaks even while nothing was running
+        boolean caughtUp = catchUp(LocalDate.now());
+        if (replayed > 0 || migrate || caughtUp) compact();
+    }
+
+    /** Snapshot and history into an empty store; returns true if text files were read for a binary profile. */
+    private boolean loadSnapshot(HabitStore into) throws IOException {
+        boolean migrate = false;
+        if (binary && snapshotFile.exists()) {
+            into.load(HabitSnapshot.open(snapshotFile));
+        } else {
+            into.load(habitFile, streakFile);
+            migrate = binary;
+        }
+        into.loadHistory(historyFile);
+        into.loadSchedules(scheduleFile);
+        into.loadChecksDay(dayFile);
+        return migrate;
+    }
+
+    /** Day the habit files were last written, or today for a new profile. */
+    private LocalDate lastWritten() {
+        long millis = 0;
+        for (File f : new File[]{habitFile, snapshotFile, journalFile}) millis = Math.max(millis, f.lastModified());
+        return millis == 0 ? LocalDate.now() : java.time.Instant.ofEpochMilli(millis).atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /** Blocks until every change so far is on disk; throws if writing them failed (they are retried). */
+    public void flush() throws IOException {
+        if (persistence != null) persistence.flush();
+    }
+
+    /** Folds the journal into a fresh snapshot and stops the writer. */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void close() {
+        if (persistence == null) return;
+        compact();
+        try {
+            persistence.close();
+        } catch (IOException e) { e.printStackTrace(); }
+        persistence = null;
+        if (watcher != null) watcher.interrupt();
+        if (lockChannel != null) {
+            try { lockChannel.close(); } catch (IOException e) { e.printStackTrace(); }
+        }
+    }
+
+    // ---------------- Changes ----------------
+    public HabitStore.Habit add(String name) {
+        HabitStore.Habit h = store.add(name, false);
+        record(HabitJournal.add(name, false));
+        return h;
+    }
+
+    public void toggle(HabitStore.Habit habit) {
+        LocalDate today = LocalDate.now();
+        store.setChecked(habit, !habit.checked());
+        store.recordDay(habit, today, habit.checked());
+        record(HabitJournal.check(habit.index(), habit.checked()));
+        record(HabitJournal.history(habit.index(), today, habit.checked()));
+        updateStreak(habit, today);
+    }
+
+    /** New rule for the habit; its streak is recounted under it. */
+    public void setRecurrence(HabitStore.Habit habit, Recurrence rule) {
+        LocalDate today = LocalDate.now();
+        store.setRecurrence(habit, rule, today);
+        record(HabitJournal.recurrence(habit.index(), rule, today));
+        record(HabitJournal.streak(habit.index(), habit.streak(), habit.lastCompleted()));
+    }
+
+    /**
+     * Appends one batch of imported habits: a single store event, and journal records that skip
+     * the compaction threshold so an import of millions of rows is not folded over and over.
+     * Call compact() once the import is done.
+     */
+    public void importHabits(List<HabitTransfer.Row> rows) {
+        int index = store.size();
+        store.addAll(rows);
+        for (HabitTransfer.Row r : rows) {
+            submit(HabitJournal.add(r.name, r.checked));
+            if (r.streak != 0 || r.lastDay != HabitStore.NO_DAY) {
+                submit(HabitJournal.streak(index, r.streak, r.lastDay == HabitStore.NO_DAY ? null : LocalDate.ofEpochDay(r.lastDay)));
+            }
+            for (long day : r.days) submit(HabitJournal.history(index, LocalDate.ofEpochDay(day), true));
+            index++;
+        }
+    }
+
+    public void rename(HabitStore.Habit habit, String name) {
+        store.rename(habit, name);
+        record(HabitJournal.rename(habit.index(), name));
+    }
+
+    public void remove(HabitStore.Habit habit) {
+        int index = habit.index();
+        store.remove(habit);
+        record(HabitJournal.delete(index));
+    }
+
+    // ---------------- Streak Logic ----------------
+    private void updateStreak(HabitStore.Habit habit, LocalDate today) {
+        long start = System.nanoTime();
+        if (store.updateStreak(habit, today)) {
+            record(HabitJournal.streak(habit.index(), habit.streak(), habit.lastCompleted()));
+        }
+        HabitMetrics.INSTANCE.updateStreak.stop(start);
+    }
+
+    /** store.catchUp, timed; returns true if streaks broke. */
+    private boolean catchUp(LocalDate today) {
+        long start = System.nanoTime();
+        boolean broken = store.catchUp(today) > 0;
+        HabitMetrics.INSTANCE.catchUp.stop(start);
+        return broken;
+    }
+
+    /**
+     * Daily reset once the date has moved past the last one, which the files keep, so one
+     * missed while nothing was running happens on the first call after startup. Returns true
+     * if it ran.
+     */
+    public boolean checkDayBoundary() {
+        LocalDate today = LocalDate.now();
+        LocalDate last = store.checksDay() != null ? store.checksDay() : filesDay;
+        if (!today.isAfter(last)) return false;
+        store.uncheckAll(today);
+        record(HabitJournal.uncheckAll(today));
+        // catch-up is recomputed from the dates on every start, so a snapshot covers it
+        if (catchUp(today)) compact();
+        return true;
+    }
+
+    // ---------------- Persistence ----------------
+    // Records are rendered on the calling thread, the worker does the disk I/O.
+    private void record(String journalRecord) {
+        submit(journalRecord);
+        if (++journalRecords >= JOURNAL_COMPACT_THRESHOLD) compact();
+    }
+
+    private void submit(String journalRecord) { persistence.submit(journalRecord); }
+
+    /** Hands the worker a snapshot of the current state to fold the journal into. */
+    public void compact() {
+        HabitMetrics metrics = HabitMetrics.INSTANCE;
+        journalRecords = 0;
+        byte[] history = store.historyBytes(binary);
+        List<String> schedules = store.scheduleLines(binary);
+        List<String> day = store.checksDayLines();
+        if (binary) {
+            byte[] habits = HabitSnapshot.toBytes(store);
+            persistence.submitSnapshot(() -> {
+                save(metrics.saveHabits, () -> journal.stage(snapshotFile, habits));
+                save(metrics.saveHistory, () -> journal.stage(historyFile, history));
+                save(metrics.saveStreaks, () -> journal.stage(scheduleFile, schedules));
+                if (!day.isEmpty()) journal.stage(dayFile, day);
+            });
+        } else {
+            List<String> habits = store.habitLines();
+            List<String> streaks = store.streakLines();
+            persistence.submitSnapshot(() -> {
+                save(metrics.saveHabits, () -> journal.stage(habitFile, habits));
+                save(metrics.saveStreaks, () -> journal.stage(streakFile, streaks));
+                save(metrics.saveStreaks, () -> journal.stage(scheduleFile, schedules));
+                save(metrics.saveHistory, () -> journal.stage(historyFile, history));
+                if (!day.isEmpty()) journal.stage(dayFile, day);
+            });
+        }
+    }
+
+    private static void save(HabitMetrics.Timer timer, PersistenceWorker.Snapshot write) throws IOException {
+        long start = System.nanoTime();
+        write.write();
+        timer.stop(start);
+    }
+
+    // ---------------- Live reload ----------------
+    // Another instance or a sync tool may write the same directory. Every batch the worker
+    // writes then runs under an exclusive lock on habits.lock, after picking up what others
+    // wrote: new journal lines are read from where this process stopped, so the cost follows
+    // the size of the change, and a snapshot rewritten by someone else's compaction is loaded
+    // into a fresh store and merged row by row. Both are applied on the owner thread. A
+    // WatchService on the directory makes the worker look as soon as any habit file changes.
+    //
+    // Records name habits by row, so the worker rebases them: when another process added or
+    // deleted habits first, records still queued here move to the rows those habits are on
+    // now, and the other process's records move past what this process did meanwhile before
+    // the store applies them. Both processes and the file end up with the same rows.
+
+    /**
+     * Picks up changes other processes make to this directory; changes are applied to the
+     * store through owner (the EDT in the app). Call before load().
+     */
+    public void enableLiveReload(Executor owner) throws IOException {
+        this.owner = owner;
+        lockChannel = FileChannel.open(new File(dir, "habits.lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private final class Sharing implements PersistenceWorker.Sharing {
+        @Override
+        public FileLock lock() throws IOException { return lockChannel.lock(); }
+
+        @Override
+        public PersistenceWorker.Foreign catchUp() throws IOException {
+            HabitStore fresh = null;
+            journal.recover(); // a process that died halfway through its compaction
+            List<Object> stamp = snapshotStamp();
+            if (!stamp.equals(snapshotStamp)) {
+                // compacted elsewhere: the new journal starts after that snapshot
+                snapshotStamp = stamp;
+                fresh = new HabitStore();
+                loadSnapshot(fresh);
+                journal.reset();
+            }
+            List<String> records = journal.readNew();
+            if (fresh == null && records.isEmpty()) return null;
+            return new PersistenceWorker.Foreign(fresh, records);
+        }
+
+        @Override
+        public void arrived() { owner.execute(HabitProfile.this::applyExternal); }
+
+        @Override
+        public void compacted() throws IOException { snapshotStamp = snapshotStamp(); }
+
+        @Override
+        public void compactionSkipped() {
+            owner.execute(() -> {
+                if (persistence != null) compact();
+            });
+        }
+    }
+
+    /** On the owner thread. */
+    private void applyExternal() {
+        if (persistence == null) return; // closed meanwhile
+        PersistenceWorker.Foreign changes = persistence.takeForeign();
+        if (changes == null) return; // an earlier call took them
+        // with a snapshot, the records include ours still in flight, which go on top again
+        if (changes.snapshot != null) store.merge(changes.snapshot);
+        store.apply(changes.records);
+        journalRecords += changes.records.size();
+        if (journalRecords >= JOURNAL_COMPACT_THRESHOLD) compact();
+    }
+
+    /** Identity of the snapshot files as they are now; changes whenever one is replaced. */
+    private List<Object> snapshotStamp() throws IOException {
+        return Arrays.asList(stamp(habitFile), stamp(streakFile), stamp(snapshotFile), stamp(historyFile), stamp(scheduleFile), stamp(dayFile));
+    }
+
+    private static Object stamp(File file) throws IOException {
+        if (!file.exists()) return "missing";
+        BasicFileAttributes a = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return Arrays.asList(a.fileKey(), a.lastModifiedTime(), a.size());
+    }
+
+    private void startWatcher() {
+        Set<String> names = Set.of(habitFile.getName(), streakFile.getName(), snapshotFile.getName(),
+                historyFile.getName(), scheduleFile.getName(), dayFile.getName(), journalFile.getName());
+        PersistenceWorker worker = persistence;
+        watcher = new Thread(() -> watch(names, worker), "habit-file-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void watch(Set<String> names, PersistenceWorker worker) {
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            dir.toPath().register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            while (true) {
+                WatchKey key = ws.take();
+                boolean relevant = false;
+                for (WatchEvent<?> e : key.pollEvents()) {
+                    // our own writes show up here too; the worker's check is a few stats then
+                    relevant |= e.kind() == StandardWatchEventKinds.OVERFLOW || names.contains(e.context().toString());
+                }
+                if (relevant) worker.sync();
+                if (!key.reset()) return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+}
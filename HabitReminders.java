@@ -0,0 +1,263 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Per-habit reminders: a time of day, optionally repeated every few minutes until the habit
+ * is checked, and snoozed on demand. Every pending reminder is one timer in a shared
+ * TimerWheel, so setting, snoozing and dropping one is constant time however many there are,
+ * and a single thread wakes for all of them.
+ *
+ * A reminder only speaks up while its habit is due today and unchecked; otherwise it goes
+ * quietly to its next time. Reminders that come up together reach the listener as one batch
+ * on the owner's thread (the EDT), which is the only thread that touches this class.
+ *
+ * Pending reminders live in habit_reminders.txt in the data directory, matched to habits by
+ * name like the schedules, with their next firing time, so a snooze or repeat in progress
+ * survives a restart and a time missed while the app was closed fires on startup the same day.
+ */
+public class HabitReminders implements HabitStore.Listener {
+
+    // Layout, one per habit with a reminder:
+    //   <HH:mm>|<repeat minutes, 0 = once>|<next fire epoch ms>|<name>
+
+    public static final class Reminder {
+        public final LocalTime time;
+        public final int repeatMinutes;
+        private TimerWheel<Reminder>.Timer timer;
+        private String name; // as last written
+
+        private Reminder(LocalTime time, int repeatMinutes) {
+            this.time = time;
+            this.repeatMinutes = repeatMinutes;
+        }
+
+        public long nextMillis() { return timer.dueMillis(); }
+    }
+
+    private final HabitStore store;
+    private final File file;
+    private final Executor owner;
+    private final Consumer<List<HabitStore.Habit>> listener;
+    private final TimerWheel<Reminder> wheel;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "reminders-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<Integer, Reminder> byHabit = new HashMap<>();
+    private final Map<Reminder, Integer> habitOf = new HashMap<>();
+    private boolean loaded; // nothing is written before the file has been read back
+    private boolean savePending;
+
+    /** Call on the owner thread once the store is loaded; listener hears each batch of reminders. */
+    public HabitReminders(HabitStore store, File dir, Executor owner, Consumer<List<HabitStore.Habit>> listener) {
+        this.store = store;
+        this.file = new File(dir, "habit_reminders.txt");
+        this.owner = owner;
+        this.listener = listener;
+        this.wheel = new TimerWheel<>("habit-reminders", batch -> owner.execute(() -> fired(batch)));
+        store.addListener(this);
+        io.execute(this::load);
+    }
+
+    // ---------------- Reminders ----------------
+    public Reminder reminder(HabitStore.Habit habit) { return byHabit.get(habit.id()); }
+
+    public int size() { return byHabit.size(); }
+
+    /** Reminds at time each day, then every repeatMinutes (0 for never) until checked. */
+    public void set(HabitStore.Habit habit, LocalTime time, int repeatMinutes) {
+        Reminder r = new Reminder(time, Math.max(0, repeatMinutes));
+        put(habit.id(), r, nextDaily(time, System.currentTimeMillis()));
+        save();
+    }
+
+    public void clear(HabitStore.Habit habit) {
+        if (drop(habit.id())) save();
+    }
+
+    /** Fires the habit's reminder again after delay instead of at its next time. */
+    public void snooze(HabitStore.Habit habit, Duration delay) {
+        Reminder r = byHabit.get(habit.id());
+        if (r == null) return;
+        wheel.cancel(r.timer);
+        r.timer = wheel.schedule(System.currentTimeMillis() + delay.toMillis(), r);
+        save();
+    }
+
+    private void put(int id, Reminder r, long atMillis) {
+        drop(id);
+        r.name = store.byId(id).name();
+        r.timer = wheel.schedule(atMillis, r);
+        byHabit.put(id, r);
+        habitOf.put(r, id);
+    }
+
+    private boolean drop(int id) {
+        Reminder r = byHabit.remove(id);
+        if (r == null) return false;
+        habitOf.remove(r);
+        wheel.cancel(r.timer);
+        return true;
+    }
+
+    /** Next time of day after now, in the system zone. */
+    private static long nextDaily(LocalTime time, long nowMillis) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), zone);
+        LocalDateTime at = now.toLocalDate().atTime(time);
+        if (!at.isAfter(now)) at = at.plusDays(1);
+        return at.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static LocalDate date(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    // ---------------- Firing ----------------
+    private void fired(List<Reminder> batch) {
+        long now = System.currentTimeMillis();
+        List<HabitStore.Habit> due = new ArrayList<>();
+        Set<Reminder> seen = new HashSet<>();
+        for (Reminder r : batch) {
+            Integer id = habitOf.get(r);
+            if (!seen.add(r)) continue; // snoozed into the same batch
+            if (id == null || r.timer.dueMillis() > now) continue; // dropped or rescheduled since
+            HabitStore.Habit h = store.byId(id);
+            boolean speak = !h.checked() && store.schedule().isDue(h);
+            if (speak) due.add(h);
+            long next = nextDaily(r.time, now);
+            if (speak && r.repeatMinutes > 0) {
+                long again = now + r.repeatMinutes * 60_000L;
+                if (date(again).equals(date(now))) next = again; // nag until checked, not past midnight
+            }
+            r.timer = wheel.schedule(next, r);
+        }
+        if (!batch.isEmpty()) save();
+        if (!due.isEmpty()) listener.accept(due);
+    }
+
+    // ---------------- Store events ----------------
+    @Override
+    public void habitAdded(HabitStore.Habit habit) { }
+
+    @Override
+    public void habitChanged(HabitStore.Habit habit) {
+        Reminder r = byHabit.get(habit.id());
+        if (r != null && !r.name.equals(habit.name())) save(); // renamed: the file matches by name
+    }
+
+    @Override
+    public void habitRemoved(HabitStore.Habit habit, int index) {
+        if (drop(habit.id())) save();
+    }
+
+    @Override
+    public void habitsAdded(int fromIndex, int toIndex) { }
+
+    @Override
+    public void habitsChanged() {
+        List<Integer> gone = new ArrayList<>();
+        for (Integer id : byHabit.keySet()) if (store.byId(id) == null) gone.add(id);
+        for (Integer id : gone) drop(id);
+        save(); // names may have moved too
+    }
+
+    // ---------------- Files ----------------
+
+    /** Writes once per burst of changes: the lines are taken when the owner gets round to it. */
+    private void save() {
+        if (!loaded || savePending) return;
+        savePending = true;
+        owner.execute(() -> {
+            savePending = false;
+            List<String> lines = new ArrayList<>(byHabit.size());
+            for (Map.Entry<Integer, Reminder> e : byHabit.entrySet()) {
+                Reminder r = e.getValue();
+                r.name = store.byId(e.getKey()).name();
+                lines.add(r.time + "|" + r.repeatMinutes + "|" + r.timer.dueMillis() + "|" + r.name);
+            }
+            io.execute(() -> write(lines));
+        });
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void write(List<String> lines) {
+        try {
+            HabitJournal.writeSnapshot(file, lines);
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    /** Waits until the last change is on disk. */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void flush() {
+        try {
+            io.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) { e.printStackTrace(); }
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void load() {
+        List<String> lines = new ArrayList<>();
+        if (!file.exists()) {
+            owner.execute(() -> apply(lines));
+            return;
+        }
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line; (line = r.readLine()) != null; ) lines.add(line);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return; // stays unloaded: better no reminders saved than the file's lost
+        }
+        HabitMetrics.INSTANCE.linesParsed(lines.size());
+        owner.execute(() -> apply(lines));
+    }
+
+    /** Reminders set meanwhile win over the file's. */
+    private void apply(List<String> lines) {
+        Map<String, ArrayDeque<HabitStore.Habit>> unclaimed = new HashMap<>();
+        for (HabitStore.Habit h : store.habits()) unclaimed.computeIfAbsent(h.name(), k -> new ArrayDeque<>()).add(h);
+        long now = System.currentTimeMillis();
+        int lineNo = 0;
+        for (String line : lines) {
+            lineNo++;
+            try {
+                String[] f = line.split("\\|", 4);
+                LocalTime time = LocalTime.parse(f[0]);
+                int repeat = Integer.parseInt(f[1]);
+                long next = Long.parseLong(f[2]);
+                ArrayDeque<HabitStore.Habit> q = unclaimed.get(f[3]);
+                HabitStore.Habit h = q == null ? null : q.poll();
+                if (h == null || byHabit.containsKey(h.id())) continue;
+                // missed while closed: still worth saying today, stale after that
+                if (next <= now && !date(next).equals(date(now))) next = nextDaily(time, now);
+                put(h.id(), new Reminder(time, Math.max(0, repeat)), next);
+            } catch (RuntimeException e) {
+                HabitFileParser.STDERR.malformed(file, lineNo, "skipping bad reminder line: " + line);
+            }
+        }
+        loaded = true;
+        save();
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Which habits are due today under their Recurrence, kept as an index so that moving to a
+ * new day only touches the habits that have something happening on it. Each habit waits in
+ * a bucket keyed by the next day it needs looking at: the day after today while it is due
+ * (its period runs on, or ends unmet and its streak breaks then), otherwise the start of its
+ * next period. A weekday habit that was done therefore sleeps until its next weekday, a weekly
+ * habit that met its quota until Monday, and rolling over visits the buckets up to the new
+ * day and nothing else.
+ *
+ * A habit is due on a day that lies in one of its periods whose quota was not met before
+ * that day, so the due set only changes at rollover, when a rule changes, or when history
+ * before today changes (live reload, journal replay).
+ *
+ * Not thread-safe: owned by HabitStore on the EDT, which keeps it current.
+ */
+public class HabitSchedule {
+
+    private final HabitStore store;
+    private long today = Recurrence.NONE; // built by the first rollover
+    private final BitSet due = new BitSet();
+    private long[] checkDay = new long[16]; // by id: the bucket holding the habit's live entry
+    // Entries are never taken out of a bucket; one whose habit has moved on (checkDay differs)
+    // is skipped when the bucket comes up.
+    private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+    HabitSchedule(HabitStore store) { this.store = store; }
+
+    private static final class Bucket {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    // ---------------- Queries ----------------
+    public boolean isDue(HabitStore.Habit habit) { return due.get(habit.id()); }
+
+    public int dueCount() { return due.cardinality(); }
+
+    /** Ids of the habits due today, ascending. */
+    public int[] dueToday() { return due.stream().toArray(); }
+
+    /** Epoch day the due set is for, or Recurrence.NONE before the first rollover. */
+    public long today() { return today; }
+
+    // ---------------- Rollover ----------------
+
+    /**
+     * Moves the due set to day. The first call looks at every habit; later ones only at the
+     * habits whose bucket came up, each handed to visited first (to break missed streaks).
+     */
+    void rollover(long day, IntConsumer visited) {
+        if (day == today) return;
+        due.clear();
+        if (today == Recurrence.NONE) {
+            today = day;
+            for (HabitStore.Habit h : store.habits()) {
+                visited.accept(h.id());
+                place(h.id());
+            }
+            return;
+        }
+        today = day;
+        while (!buckets.isEmpty() && buckets.firstKey() <= day) {
+            Map.Entry<Long, Bucket> e = buckets.pollFirstEntry();
+            Bucket b = e.getValue();
+            for (int i = 0; i < b.size; i++) {
+                int id = b.ids[i];
+                if (checkDay[id] != e.getKey()) continue; // moved since
+                visited.accept(id);
+                place(id);
+            }
+        }
+    }
+
+    /** Works out whether id is due today and files it under the next day it needs looking at. */
+    private void place(int id) {
+        Recurrence r = store.recurrence(id);
+        long start = r.periodStart(today);
+        boolean isDue = start != Recurrence.NONE
+                && store.history().countCompleted(id, start, today - 1) < r.quota();
+        if (isDue) due.set(id);
+        else due.clear(id);
+        long next = isDue ? today + 1 : r.nextPeriodStart(today);
+        if (id >= checkDay.length) checkDay = Arrays.copyOf(checkDay, Math.max(id + 1, checkDay.length * 2));
+        checkDay[id] = next;
+        buckets.computeIfAbsent(next, k -> new Bucket()).add(id);
+    }
+
+    // ---------------- Updates ----------------
+    // No-ops until the first rollover.
+
+    /** New habit, changed rule, or changed history before today. */
+    void changed(int id) {
+        if (today != Recurrence.NONE) place(id);
+    }
+
+    void removed(int id) {
+        if (today == Recurrence.NONE) return;
+        due.clear(id);
+        checkDay[id] = Recurrence.NONE;
+    }
+}
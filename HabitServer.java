@@ -0,0 +1,415 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless mode: the same habit and streak logic as the desktop app, served over HTTP to
+ * several users, each with their own data directory under the root.
+ *
+ *   GET  /users/{user}/habits                 habits in list order
+ *   POST /users/{user}/habits                 add a habit, the body is its name
+ *   POST /users/{user}/habits/{index}/toggle  check / uncheck, same streak rules as the app
+ *   POST /users/{user}/habits/{index}/repeat  set the Recurrence, the body is its text form
+ *   GET  /users/{user}/due                    habits due today
+ *   GET  /users/{user}/streaks                streak, longest run and last 30 days per habit
+ *   GET  /users/{user}/pomodoro               current phase, time left and today's focus
+ *   POST /users/{user}/pomodoro/start         optional ?work=25&break=5 (minutes)
+ *   POST /users/{user}/pomodoro/stop
+ *
+ * Every request runs on its own virtual thread. Profiles are loaded on first use and kept
+ * in an LRU cache; a profile is only ever touched while holding its lock stripe, which also
+ * serialises loading and retiring it, so different users proceed in parallel and one user's
+ * requests apply in order. Pomodoro sessions go to the user's directory through the same
+ * PomodoroLog as the app's. Start with {@code java MultiSectionApp --server [port] [root]}.
+ */
+public class HabitServer {
+
+    private static final int STRIPES = 64;
+    private static final int RATE_DAYS = 30;
+
+    private static final class Profile {
+        final HabitProfile habits;
+        private final File dir;
+        private final Executor owner; // runs under the user's stripe, like every other use of the profile
+        private PomodoroEngine pomodoro; // null until the first Pomodoro request
+        private PomodoroLog log;
+        private int completedWork;
+
+        Profile(HabitProfile habits, File dir, Executor owner) {
+            this.habits = habits;
+            this.dir = dir;
+            this.owner = owner;
+        }
+
+        PomodoroEngine pomodoro() {
+            if (pomodoro == null) {
+                log = new PomodoroLog(dir, owner);
+                pomodoro = new PomodoroEngine(Duration.ofMinutes(25).toNanos(), Duration.ofMinutes(5).toNanos());
+                pomodoro.addListener(new PomodoroEngine.Listener() {
+                    @Override
+                    public void sessionEnded(PomodoroEngine.Session session) {
+                        log.record(session);
+                        if (session.completed && session.phase == PomodoroEngine.Phase.WORK) completedWork++;
+                    }
+
+                    @Override
+                    public void phaseChanged(PomodoroEngine.Phase phase) { }
+                });
+            }
+            return pomodoro;
+        }
+
+        /** Logs the session in progress, then writes everything back. */
+        void close() {
+            if (pomodoro != null) {
+                pomodoro.stop(System.nanoTime());
+                log.close();
+            }
+            habits.close();
+        }
+    }
+
+    private interface Action {
+        String apply(Profile profile) throws IOException;
+    }
+
+    private final File root;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Map<String, Profile> cache;
+    // evicted from the cache but not yet closed; a request arriving meanwhile takes it back
+    private final Map<String, Profile> retiring = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public HabitServer(File root, int capacity) {
+        this.root = root;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Profile> eldest) {
+                if (size() <= capacity) return false;
+                retire(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    // ---------------- Lifecycle ----------------
+
+    /** Starts listening and returns the bound port (useful with port 0). */
+    public int start(InetSocketAddress address) throws IOException {
+        // headers and body go out as separate writes; with Nagle on, the body waits for the client's delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(address, 1024);
+        server.setExecutor(executor);
+        server.createContext("/users/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests, then writes every loaded profile back to disk. */
+    public void stop() {
+        server.stop(0);
+        executor.close();
+        List<String> users;
+        synchronized (cache) {
+            users = new ArrayList<>(cache.keySet());
+        }
+        for (String user : users) {
+            ReentrantLock lock = stripe(user);
+            lock.lock();
+            try {
+                Profile p;
+                synchronized (cache) {
+                    p = cache.remove(user);
+                }
+                if (p != null) p.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+        for (Map.Entry<String, Profile> e : retiring.entrySet()) close(e.getKey(), e.getValue());
+    }
+
+    // ---------------- Profiles ----------------
+    private ReentrantLock stripe(String user) { return stripes[Math.floorMod(user.hashCode(), STRIPES)]; }
+
+    private String withProfile(String user, Action action) throws IOException {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            Profile p;
+            synchronized (cache) {
+                p = cache.get(user);
+            }
+            if (p == null) {
+                p = retiring.remove(user);
+                if (p == null) p = load(user);
+                synchronized (cache) {
+                    cache.put(user, p);
+                }
+            }
+            p.habits.checkDayBoundary();
+            return action.apply(p);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Profile load(String user) throws IOException {
+        File dir = new File(root, user);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        HabitProfile habits = new HabitProfile(dir, HabitProfile.BINARY_SNAPSHOT);
+        habits.load(HabitProfile.COMMIT_WINDOW_MS);
+        ReentrantLock lock = stripe(user);
+        return new Profile(habits, dir, task -> {
+            lock.lock();
+            try {
+                task.run();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /** Called with the cache monitor held, so the close happens on another thread under the user's stripe. */
+    private void retire(String user, Profile p) {
+        retiring.put(user, p);
+        Thread.startVirtualThread(() -> close(user, p));
+    }
+
+    private void close(String user, Profile p) {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            if (retiring.remove(user, p)) p.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------- Requests ----------------
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String[] path = ex.getRequestURI().getPath().substring("/users/".length()).split("/");
+            String method = ex.getRequestMethod();
+            if (path.length < 2 || !validUser(path[0])) {
+                send(ex, 404, error("not found"));
+                return;
+            }
+            String user = path[0];
+            String resource = path[1];
+            if (resource.equals("habits") && path.length == 2 && method.equals("GET")) {
+                send(ex, 200, withProfile(user, p -> habitsJson(p.habits.store())));
+            } else if (resource.equals("habits") && path.length == 2 && method.equals("POST")) {
+                String name = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
+                if (name.isEmpty()) {
+                    send(ex, 400, error("empty name"));
+                    return;
+                }
+                send(ex, 201, withProfile(user, p -> habitJson(p.habits.store(), p.habits.add(name))));
+            } else if (resource.equals("habits") && path.length == 4 && path[3].equals("toggle") && method.equals("POST")) {
+                int index = parseIndex(path[2]);
+                String body = withProfile(user, p -> {
+                    HabitStore store = p.habits.store();
+                    if (index < 0 || index >= store.size()) return null;
+                    HabitStore.Habit h = store.get(index);
+                    p.habits.toggle(h);
+                    return habitJson(store, h);
+                });
+                if (body == null) send(ex, 404, error("no habit " + path[2]));
+                else send(ex, 200, body);
+            } else if (resource.equals("habits") && path.length == 4 && path[3].equals("repeat") && method.equals("POST")) {
+                int index = parseIndex(path[2]);
+                Recurrence rule;
+                try {
+                    rule = Recurrence.parse(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim());
+                } catch (RuntimeException e) {
+                    send(ex, 400, error("rule must be daily, days:1010100, week:3 or every:3:2024-01-01"));
+                    return;
+                }
+                String body = withProfile(user, p -> {
+                    HabitStore store = p.habits.store();
+                    if (index < 0 || index >= store.size()) return null;
+                    HabitStore.Habit h = store.get(index);
+                    p.habits.setRecurrence(h, rule);
+                    return habitJson(store, h);
+                });
+                if (body == null) send(ex, 404, error("no habit " + path[2]));
+                else send(ex, 200, body);
+            } else if (resource.equals("due") && path.length == 2 && method.equals("GET")) {
+                send(ex, 200, withProfile(user, p -> dueJson(p.habits.store())));
+            } else if (resource.equals("streaks") && path.length == 2 && method.equals("GET")) {
+                send(ex, 200, withProfile(user, p -> streaksJson(p.habits.store())));
+            } else if (resource.equals("pomodoro") && path.length == 2 && method.equals("GET")) {
+                send(ex, 200, withProfile(user, p -> pomodoroJson(p, System.nanoTime())));
+            } else if (resource.equals("pomodoro") && path.length == 3 && path[2].equals("start") && method.equals("POST")) {
+                int work = queryInt(ex, "work", 25);
+                int rest = queryInt(ex, "break", 5);
+                if (work <= 0 || rest <= 0) {
+                    send(ex, 400, error("work and break must be positive minutes"));
+                    return;
+                }
+                send(ex, 200, withProfile(user, p -> {
+                    // a start always begins a fresh work phase with the given lengths
+                    PomodoroEngine engine = p.pomodoro();
+                    long now = System.nanoTime();
+                    engine.stop(now);
+                    engine.setWorkLength(Duration.ofMinutes(work).toNanos(), now);
+                    engine.setBreakLength(Duration.ofMinutes(rest).toNanos(), now);
+                    engine.start(now);
+                    return pomodoroJson(p, now);
+                }));
+            } else if (resource.equals("pomodoro") && path.length == 3 && path[2].equals("stop") && method.equals("POST")) {
+                send(ex, 200, withProfile(user, p -> {
+                    long now = System.nanoTime();
+                    p.pomodoro().stop(now);
+                    return pomodoroJson(p, now);
+                }));
+            } else {
+                send(ex, 404, error("not found"));
+            }
+        } catch (IOException e) {
+            // the profile could not be loaded; the client sees a 500, the connection is closed either way
+            try { send(ex, 500, error(e.getMessage())); } catch (IOException ignored) {}
+        }
+    }
+
+    /** Directory names only: no separators, no dot-only names. */
+    private static boolean validUser(String user) {
+        if (user.isEmpty() || user.length() > 64 || user.equals(".") || user.equals("..")) return false;
+        for (int i = 0; i < user.length(); i++) {
+            char c = user.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.')) return false;
+        }
+        return true;
+    }
+
+    private static int parseIndex(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int queryInt(HttpExchange ex, String key, int fallback) {
+        String query = ex.getRequestURI().getRawQuery();
+        if (query == null) return fallback;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(key)) return parseIndex(pair.substring(eq + 1));
+        }
+        return fallback;
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // ---------------- JSON ----------------
+    private static String habitsJson(HabitStore store) {
+        StringBuilder sb = new StringBuilder("[");
+        for (HabitStore.Habit h : store.habits()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(habitJson(store, h));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String dueJson(HabitStore store) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int id : store.schedule().dueToday()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(habitJson(store, store.byId(id)));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String habitJson(HabitStore store, HabitStore.Habit h) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"index\":").append(h.index())
+                .append(",\"name\":");
+        Json.quote(sb, h.name());
+        sb.append(",\"checked\":").append(h.checked())
+                .append(",\"streak\":").append(h.streak())
+                .append(",\"lastCompleted\":");
+        if (h.lastCompleted() == null) sb.append("null");
+        else Json.quote(sb, h.lastCompleted().toString());
+        sb.append(",\"repeat\":");
+        Json.quote(sb, h.recurrence().toString());
+        sb.append(",\"due\":").append(store.schedule().isDue(h));
+        return sb.append('}').toString();
+    }
+
+    private static String streaksJson(HabitStore store) {
+        long today = java.time.LocalDate.now().toEpochDay();
+        HabitHistory history = store.history();
+        StringBuilder sb = new StringBuilder("[");
+        for (HabitStore.Habit h : store.habits()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"name\":");
+            Json.quote(sb, h.name());
+            sb.append(",\"streak\":").append(h.streak())
+                    .append(",\"longest\":").append(history.longestStreak(h.id(), h.recurrence()))
+                    .append(",\"last30\":").append(history.countCompleted(h.id(), today - RATE_DAYS + 1, today))
+                    .append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Runs the phases that ended meanwhile, so the log is current before anything is read. */
+    private static String pomodoroJson(Profile p, long now) {
+        PomodoroEngine engine = p.pomodoro();
+        engine.advance(now);
+        boolean running = engine.running();
+        String phase = !running ? "idle" : engine.phase() == PomodoroEngine.Phase.WORK ? "work" : "break";
+        return "{\"running\":" + running + ",\"phase\":\"" + phase
+                + "\",\"remainingSeconds\":" + (running ? engine.remaining(now) / 1_000_000_000L : 0)
+                + ",\"completedWork\":" + p.completedWork
+                + ",\"focusTodaySeconds\":" + p.log.focusMillis(java.time.LocalDate.now()) / 1000 + "}";
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        Json.quote(sb, message == null ? "" : message);
+        return sb.append('}').toString();
+    }
+
+    // ---------------- Main ----------------
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        File root = new File(args.length > 1 ? args[1] : "users");
+        int capacity = Integer.getInteger("habits.profileCache", 256);
+        // loopback only unless asked otherwise: there is no authentication
+        String host = System.getProperty("habits.serverHost");
+        InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+
+        HabitMetrics.register();
+        HabitServer server = new HabitServer(root, capacity);
+        int bound = server.start(new InetSocketAddress(address, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "habit-server-stop"));
+        System.out.println("Serving " + root.getAbsolutePath() + " on http://" + address.getHostAddress() + ":" + bound + "/users/");
+    }
+}
@@ -0,0 +1,222 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Binary alternative to habits.txt + habits_meta.txt (habits.bin, -Dhabits.format=binary).
+ * A header, one fixed-width record per habit and a table of UTF-8 names:
+ *
+ *   header  magic "HSNP", version, count, record size, names offset, names length
+ *   record  id, flags (1 = checked, 2 = has date), streak, name length, name offset, last-completed epoch day
+ *   names   the names back to back, addressed by offset/length from the records
+ *
+ * open() maps the file and reads records straight out of the mapping; a name is only decoded
+ * when something asks for it, so loading costs one pass over the fixed-width records and no
+ * per-habit text parsing or name lookups. Once the records are loaded, release() copies the
+ * string table out and unmaps the file: Windows will not let a compaction, ours or another
+ * process's, replace a file that is still mapped.
+ *
+ * Convert with {@code java HabitSnapshot to-binary|to-text habits.txt habits_meta.txt habits.bin};
+ * habits_history.bin and habits_schedule.txt next to habits.bin are re-keyed along with it.
+ */
+public final class HabitSnapshot {
+
+    private static final int MAGIC = 0x48534E50; // "HSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD = 32;
+
+    private static final int CHECKED = 1;
+    private static final int HAS_DATE = 2;
+
+    private ByteBuffer buf; // the mapping until release()
+    private final int count;
+    private final long namesOffset;
+
+    // after release(): the string table and where each record's name is in it
+    private byte[] names;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+
+    private HabitSnapshot(ByteBuffer buf, int count, long namesOffset) {
+        this.buf = buf;
+        this.count = count;
+        this.namesOffset = namesOffset;
+    }
+
+    // ---------------- Reading ----------------
+
+    /** Maps the file and checks the header and every record's bounds, without decoding names. */
+    public static HabitSnapshot open(File file) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException(file + ": snapshot too large");
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // stays valid after close
+        }
+        if (buf.capacity() < HEADER || buf.getInt(0) != MAGIC) throw new IOException(file + ": not a habit snapshot");
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new IOException(file + ": unsupported snapshot version " + version);
+        int count = buf.getInt(8);
+        int recordSize = buf.getInt(12);
+        long namesOffset = buf.getLong(16);
+        long namesLength = buf.getLong(24);
+        if (count < 0 || recordSize != RECORD || namesOffset != HEADER + (long) count * RECORD
+                || namesLength < 0 || namesOffset + namesLength != buf.capacity()) {
+            throw new IOException(file + ": corrupt snapshot header");
+        }
+
+        HabitSnapshot s = new HabitSnapshot(buf, count, namesOffset);
+        BitSet ids = new BitSet();
+        for (int i = 0; i < count; i++) {
+            int at = HEADER + i * RECORD;
+            int id = buf.getInt(at);
+            int nameLength = buf.getInt(at + 12);
+            long nameOffset = buf.getLong(at + 16);
+            if (id < 0 || ids.get(id) || nameLength < 0 || nameOffset < 0 || nameOffset + nameLength > namesLength) {
+                throw new IOException(file + ": corrupt record " + i);
+            }
+            ids.set(id);
+        }
+        return s;
+    }
+
+    public int size() { return count; }
+
+    public int id(int record) { return buf.getInt(HEADER + record * RECORD); }
+
+    public boolean checked(int record) { return (flags(record) & CHECKED) != 0; }
+
+    public int streak(int record) { return buf.getInt(HEADER + record * RECORD + 8); }
+
+    /** Epoch day, or HabitStore.NO_DAY. */
+    public int lastCompletedDay(int record) {
+        return (flags(record) & HAS_DATE) == 0 ? HabitStore.NO_DAY : (int) buf.getLong(HEADER + record * RECORD + 24);
+    }
+
+    /** Decodes the name from the string table. */
+    public String name(int record) {
+        if (names != null) return new String(names, nameOffsets[record], nameLengths[record], StandardCharsets.UTF_8);
+        int at = HEADER + record * RECORD;
+        int length = buf.getInt(at + 12);
+        byte[] bytes = new byte[length];
+        buf.get((int) (namesOffset + buf.getLong(at + 16)), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int flags(int record) { return buf.getInt(HEADER + record * RECORD + 4); }
+
+    /** Keeps only what name() needs, on the heap, and unmaps the file; the other getters stop working. */
+    public void release() {
+        if (names != null) return;
+        names = new byte[buf.capacity() - (int) namesOffset];
+        buf.get((int) namesOffset, names);
+        nameOffsets = new int[count];
+        nameLengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            int at = HEADER + i * RECORD;
+            nameLengths[i] = buf.getInt(at + 12);
+            nameOffsets[i] = (int) buf.getLong(at + 16);
+        }
+        unmap(buf);
+        buf = null;
+    }
+
+    /** Unmaps now rather than whenever the buffer is collected; left to the collector without sun.misc.Unsafe. */
+    private static void unmap(ByteBuffer buf) {
+        try {
+            Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+            Field instance = unsafe.getDeclaredField("theUnsafe");
+            instance.setAccessible(true);
+            unsafe.getMethod("invokeCleaner", ByteBuffer.class).invoke(instance.get(null), buf);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the file stays mapped until buf is garbage collected
+        }
+    }
+
+    // ---------------- Writing ----------------
+
+    /** Renders the store in list order; written through HabitJournal.writeSnapshot like the text files. */
+    public static byte[] toBytes(HabitStore store) {
+        int count = store.size();
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        ByteBuffer records = ByteBuffer.allocate(HEADER + count * RECORD);
+        records.position(HEADER);
+        for (HabitStore.Habit h : store.habits()) {
+            byte[] name = h.name().getBytes(StandardCharsets.UTF_8);
+            records.putInt(h.id());
+            boolean hasDate = h.lastCompletedDay() != HabitStore.NO_DAY;
+            records.putInt((h.checked() ? CHECKED : 0) | (hasDate ? HAS_DATE : 0));
+            records.putInt(h.streak());
+            records.putInt(name.length);
+            records.putLong(names.size());
+            records.putLong(hasDate ? h.lastCompletedDay() : 0);
+            names.write(name, 0, name.length);
+        }
+        records.putInt(0, MAGIC);
+        records.putInt(4, VERSION);
+        records.putInt(8, count);
+        records.putInt(12, RECORD);
+        records.putLong(16, HEADER + (long) count * RECORD);
+        records.putLong(24, names.size());
+
+        byte[] out = new byte[records.capacity() + names.size()];
+        System.arraycopy(records.array(), 0, out, 0, records.capacity());
+        System.arraycopy(names.toByteArray(), 0, out, records.capacity(), names.size());
+        return out;
+    }
+
+    // ---------------- Conversion ----------------
+
+    // History and schedules are keyed by id next to habits.bin and by name next to the text
+    // files (see HabitStore), so they are loaded against the old snapshot and written out with
+    // the new one. Everything written is then read back and compared, keyed by name.
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 || !(args[0].equals("to-binary") || args[0].equals("to-text"))) {
+            System.err.println("usage: HabitSnapshot to-binary|to-text <habits.txt> <habits_meta.txt> <habits.bin>");
+            System.exit(2);
+        }
+        boolean toBinary = args[0].equals("to-binary");
+        File habitFile = new File(args[1]);
+        File streakFile = new File(args[2]);
+        File binaryFile = new File(args[3]);
+        File dir = binaryFile.getAbsoluteFile().getParentFile();
+        File historyFile = new File(dir, "habits_history.bin");
+        File scheduleFile = new File(dir, "habits_schedule.txt");
+
+        HabitStore store = load(!toBinary, habitFile, streakFile, binaryFile, historyFile, scheduleFile);
+        if (toBinary) {
+            HabitJournal.writeSnapshot(binaryFile, toBytes(store));
+        } else {
+            HabitJournal.writeSnapshot(habitFile, store.habitLines());
+            HabitJournal.writeSnapshot(streakFile, store.streakLines());
+        }
+        if (historyFile.exists()) HabitJournal.writeSnapshot(historyFile, store.historyBytes(toBinary));
+        if (scheduleFile.exists()) HabitJournal.writeSnapshot(scheduleFile, store.scheduleLines(toBinary));
+
+        HabitStore written = load(toBinary, habitFile, streakFile, binaryFile, historyFile, scheduleFile);
+        if (!written.habitLines().equals(store.habitLines())
+                || !Arrays.equals(written.historyBytes(false), store.historyBytes(false))
+                || !written.scheduleLines(false).equals(store.scheduleLines(false))) {
+            System.err.println("converted files do not read back the same; keep a copy of the originals");
+            System.exit(1);
+        }
+        System.out.println(store.size() + " habits written");
+    }
+
+    private static HabitStore load(boolean binary, File habitFile, File streakFile, File binaryFile, File historyFile, File scheduleFile) throws IOException {
+        HabitStore store = new HabitStore();
+        if (binary) store.load(open(binaryFile));
+        else store.load(habitFile, streakFile);
+        store.loadHistory(historyFile);
+        store.loadSchedules(scheduleFile);
+        return store;
+    }
+}
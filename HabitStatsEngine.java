@@ -0,0 +1,381 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import javax.swing.SwingUtilities;
+
+/**
+ * Per-habit statistics computed off the EDT on a fork-join pool: current and longest streak,
+ * completions over the last 7, 30 and 365 days, the weekday most often completed, and how
+ * closely each habit's last 365 days follow those of a chosen target habit.
+ *
+ * Results are cached by habit id. Store events mark habits dirty, and a run copies only the
+ * dirty habits' history (the store's history is EDT-only), splits them into partitions and
+ * publishes each partition to the EDT as soon as it is done, so the table fills in
+ * progressively. A run starts after the events of one EDT pass, and changes that arrive
+ * during a run are picked up by the next one. The correlations are then redone for every
+ * habit from the cached 365-day windows, which is a few popcounts per habit.
+ *
+ * Everything outside the pool's tasks is EDT-confined.
+ */
+public class HabitStatsEngine implements HabitStore.Listener {
+
+    public interface Listener {
+        /** Results changed for habits at store indices fromIndex..toIndex (inclusive). */
+        void computed(int fromIndex, int toIndex);
+    }
+
+    public static final int YEAR_DAYS = 365;
+    private static final int WINDOW_WORDS = (YEAR_DAYS + 63) / 64;
+    private static final long LAST_WORD_MASK = YEAR_DAYS % 64 == 0 ? -1L : (1L << YEAR_DAYS % 64) - 1;
+    private static final int PARTITION = 2048;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Integer.getInteger("habits.statsThreads", Runtime.getRuntime().availableProcessors()),
+            pool -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("habit-stats-" + t.getPoolIndex());
+                return t;
+            }, null, false);
+
+    private final HabitStore store;
+    private final Listener listener;
+
+    // Results by habit id.
+    private boolean[] known = new boolean[16];
+    private int[] current = new int[16];
+    private int[] longest = new int[16];
+    private short[] last7 = new short[16];
+    private short[] last30 = new short[16];
+    private short[] last365 = new short[16];
+    private byte[] bestWeekday = new byte[16]; // 0 = Monday, -1 = never completed
+    private float[] correlation = new float[16];
+    private long[] windows = new long[16 * WINDOW_WORDS]; // last YEAR_DAYS days per id, oldest in bit 0
+
+    private final BitSet dirty = new BitSet();
+    private long today;
+    private int target = -1;
+    private boolean targetChanged;
+    private boolean correlated; // correlations are on show
+    private boolean scheduled;
+    private boolean running;
+    private int outstanding; // habits of the current run not published yet
+
+    public HabitStatsEngine(HabitStore store, Listener listener) {
+        this.store = store;
+        this.listener = listener;
+        store.addListener(this);
+        today = LocalDate.now().toEpochDay();
+        markAll();
+    }
+
+    // ---------------- Results ----------------
+    // Each returns null until the habit has been computed.
+
+    public Integer currentStreak(int id) { return known(id) ? current[id] : null; }
+
+    /** In periods of the habit's Recurrence, like its streak. */
+    public Integer longestStreak(int id) { return known(id) ? longest[id] : null; }
+
+    /** Percentage of the last days (7, 30 or 365) that were completed. */
+    public Integer completionPercent(int id, int days) {
+        if (!known(id)) return null;
+        int done = days == 7 ? last7[id] : days == 30 ? last30[id] : days == YEAR_DAYS ? last365[id] : -1;
+        if (done < 0) throw new IllegalArgumentException("days: " + days);
+        return Math.round(done * 100f / days);
+    }
+
+    /** Most often completed weekday over the last year, or null if none. */
+    public java.time.DayOfWeek bestWeekday(int id) {
+        return known(id) && bestWeekday[id] >= 0 ? java.time.DayOfWeek.of(bestWeekday[id] + 1) : null;
+    }
+
+    /** Phi coefficient between this habit's last year and the target's; null if undefined. */
+    public Float correlation(int id) {
+        if (target < 0 || !known(id) || Float.isNaN(correlation[id])) return null;
+        return correlation[id];
+    }
+
+    private boolean known(int id) { return id < known.length && known[id]; }
+
+    /** Habit the correlations are measured against; -1 for none. */
+    public void setTarget(int id) {
+        if (id == target) return;
+        target = id;
+        targetChanged = true;
+        schedule();
+    }
+
+    // ---------------- Runs ----------------
+    private void markAll() {
+        for (HabitStore.Habit h : store.habits()) dirty.set(h.id());
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled) return;
+        scheduled = true;
+        SwingUtilities.invokeLater(() -> {
+            scheduled = false;
+            start();
+        });
+    }
+
+    private void start() {
+        if (running) return;
+        long now = LocalDate.now().toEpochDay();
+        if (now != today) { // every window moved
+            today = now;
+            for (HabitStore.Habit h : store.habits()) dirty.set(h.id());
+        }
+        if (!targetChanged && dirty.isEmpty()) return;
+        targetChanged = false;
+        // in store order, so a partition covers a run of rows
+        int[] ids = new int[dirty.cardinality()];
+        Recurrence[] rules = new Recurrence[ids.length];
+        int n = 0;
+        for (HabitStore.Habit h : store.habits()) {
+            if (!dirty.get(h.id())) continue;
+            rules[n] = h.recurrence();
+            ids[n++] = h.id();
+        }
+        ids = Arrays.copyOf(ids, n);
+        dirty.clear();
+        running = true;
+        outstanding = n;
+        if (n == 0) {
+            correlate();
+        } else {
+            POOL.execute(new Compute(ids, rules, 0, n, store.history().copyOf(ids), today));
+        }
+    }
+
+    private final class Compute extends RecursiveAction {
+        private final int[] ids;
+        private final Recurrence[] rules; // by position in ids, for the longest streak in periods
+        private final int from;
+        private final int to;
+        private final HabitHistory history;
+        private final long today;
+
+        Compute(int[] ids, Recurrence[] rules, int from, int to, HabitHistory history, long today) {
+            this.ids = ids;
+            this.rules = rules;
+            this.from = from;
+            this.to = to;
+            this.history = history;
+            this.today = today;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARTITION) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Compute(ids, rules, from, mid, history, today), new Compute(ids, rules, mid, to, history, today));
+                return;
+            }
+            Part part = new Part(ids, from, to);
+            long first = today - YEAR_DAYS + 1;
+            for (int i = from; i < to; i++) {
+                int id = ids[i];
+                int k = i - from;
+                part.current[k] = history.currentStreak(id, today);
+                part.longest[k] = history.longestStreak(id, rules[i]);
+                part.last7[k] = (short) history.countCompleted(id, today - 6, today);
+                part.last30[k] = (short) history.countCompleted(id, today - 29, today);
+                int[] weekdays = new int[7];
+                int year = 0;
+                for (int w = 0; w < WINDOW_WORDS; w++) {
+                    long bits = history.days64(id, first + w * 64L);
+                    if (w == WINDOW_WORDS - 1) bits &= LAST_WORD_MASK;
+                    part.windows[k * WINDOW_WORDS + w] = bits;
+                    year += Long.bitCount(bits);
+                    for (long x = bits; x != 0; x &= x - 1) {
+                        weekdays[Math.floorMod(first + w * 64L + Long.numberOfTrailingZeros(x) + 3, 7)]++;
+                    }
+                }
+                part.last365[k] = (short) year;
+                int best = -1;
+                for (int d = 0; d < 7; d++) if (weekdays[d] > 0 && (best < 0 || weekdays[d] > weekdays[best])) best = d;
+                part.bestWeekday[k] = (byte) best;
+            }
+            SwingUtilities.invokeLater(() -> publish(part));
+        }
+    }
+
+    /** One partition's results on their way to the EDT. */
+    private static final class Part {
+        final int[] ids;
+        final int from;
+        final int to;
+        final int[] current;
+        final int[] longest;
+        final short[] last7;
+        final short[] last30;
+        final short[] last365;
+        final byte[] bestWeekday;
+        final long[] windows;
+
+        Part(int[] ids, int from, int to) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            int n = to - from;
+            current = new int[n];
+            longest = new int[n];
+            last7 = new short[n];
+            last30 = new short[n];
+            last365 = new short[n];
+            bestWeekday = new byte[n];
+            windows = new long[n * WINDOW_WORDS];
+        }
+    }
+
+    private void publish(Part part) {
+        int minIndex = Integer.MAX_VALUE;
+        int maxIndex = -1;
+        for (int i = part.from; i < part.to; i++) {
+            int id = part.ids[i];
+            HabitStore.Habit h = store.byId(id);
+            if (h == null) continue; // deleted meanwhile
+            int k = i - part.from;
+            ensureCapacity(id);
+            known[id] = true;
+            current[id] = part.current[k];
+            longest[id] = part.longest[k];
+            last7[id] = part.last7[k];
+            last30[id] = part.last30[k];
+            last365[id] = part.last365[k];
+            bestWeekday[id] = part.bestWeekday[k];
+            correlation[id] = Float.NaN; // until the correlation pass
+            System.arraycopy(part.windows, k * WINDOW_WORDS, windows, id * WINDOW_WORDS, WINDOW_WORDS);
+            minIndex = Math.min(minIndex, h.index());
+            maxIndex = Math.max(maxIndex, h.index());
+        }
+        if (maxIndex >= 0) listener.computed(minIndex, maxIndex);
+        outstanding -= part.to - part.from;
+        if (outstanding == 0) correlate();
+    }
+
+    /** Second pass over every habit; windows is not written until the run finishes. */
+    private void correlate() {
+        if (target < 0 || !known(target)) {
+            if (correlated && store.size() > 0) listener.computed(0, store.size() - 1); // clear the column
+            correlated = false;
+            finish();
+            return;
+        }
+        correlated = true;
+        int[] ids = new int[store.size()];
+        int n = 0;
+        for (HabitStore.Habit h : store.habits()) if (known(h.id())) ids[n++] = h.id();
+        outstanding = n;
+        long[] targetWindow = Arrays.copyOfRange(windows, target * WINDOW_WORDS, (target + 1) * WINDOW_WORDS);
+        POOL.execute(new Correlate(ids, 0, n, windows, targetWindow));
+    }
+
+    private final class Correlate extends RecursiveAction {
+        private final int[] ids;
+        private final int from;
+        private final int to;
+        private final long[] windows;
+        private final long[] target;
+
+        Correlate(int[] ids, int from, int to, long[] windows, long[] target) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.windows = windows;
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARTITION * 8) { // cheap per habit, so bigger partitions
+                int mid = (from + to) >>> 1;
+                invokeAll(new Correlate(ids, from, mid, windows, target), new Correlate(ids, mid, to, windows, target));
+                return;
+            }
+            int ty = 0;
+            for (long w : target) ty += Long.bitCount(w);
+            float[] phi = new float[to - from];
+            for (int i = from; i < to; i++) {
+                int at = ids[i] * WINDOW_WORDS;
+                int x = 0;
+                int xy = 0;
+                for (int w = 0; w < WINDOW_WORDS; w++) {
+                    x += Long.bitCount(windows[at + w]);
+                    xy += Long.bitCount(windows[at + w] & target[w]);
+                }
+                double denominator = Math.sqrt((double) x * (YEAR_DAYS - x) * ty * (YEAR_DAYS - ty));
+                phi[i - from] = denominator == 0 ? Float.NaN : (float) (((double) YEAR_DAYS * xy - (double) x * ty) / denominator);
+            }
+            SwingUtilities.invokeLater(() -> publishCorrelation(ids, from, to, phi));
+        }
+    }
+
+    private void publishCorrelation(int[] ids, int from, int to, float[] phi) {
+        int minIndex = Integer.MAX_VALUE;
+        int maxIndex = -1;
+        for (int i = from; i < to; i++) {
+            HabitStore.Habit h = store.byId(ids[i]);
+            if (h == null) continue;
+            correlation[ids[i]] = phi[i - from];
+            minIndex = Math.min(minIndex, h.index());
+            maxIndex = Math.max(maxIndex, h.index());
+        }
+        if (maxIndex >= 0) listener.computed(minIndex, maxIndex);
+        outstanding -= to - from;
+        if (outstanding == 0) finish();
+    }
+
+    private void finish() {
+        running = false;
+        if (targetChanged || !dirty.isEmpty()) schedule();
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < known.length) return;
+        int n = Math.max(id + 1, known.length * 2);
+        known = Arrays.copyOf(known, n);
+        current = Arrays.copyOf(current, n);
+        longest = Arrays.copyOf(longest, n);
+        last7 = Arrays.copyOf(last7, n);
+        last30 = Arrays.copyOf(last30, n);
+        last365 = Arrays.copyOf(last365, n);
+        bestWeekday = Arrays.copyOf(bestWeekday, n);
+        correlation = Arrays.copyOf(correlation, n);
+        windows = Arrays.copyOf(windows, n * WINDOW_WORDS);
+    }
+
+    // ---------------- Store events ----------------
+    @Override
+    public void habitAdded(HabitStore.Habit habit) {
+        dirty.set(habit.id());
+        schedule();
+    }
+
+    @Override
+    public void habitChanged(HabitStore.Habit habit) {
+        dirty.set(habit.id());
+        schedule();
+    }
+
+    @Override
+    public void habitRemoved(HabitStore.Habit habit, int index) {
+        dirty.clear(habit.id());
+        if (habit.id() < known.length) known[habit.id()] = false;
+        if (habit.id() == target) setTarget(-1);
+    }
+
+    @Override
+    public void habitsAdded(int fromIndex, int toIndex) {
+        for (int i = fromIndex; i <= toIndex; i++) dirty.set(store.get(i).id());
+        schedule();
+    }
+
+    @Override
+    public void habitsChanged() { markAll(); }
+}
@@ -0,0 +1,602 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory habit model, independent of Swing. Holds the habits in display order together
+ * with their checked state and streak, and keeps a running count of checked habits so
+ * "everything done today" is answered without a scan. Views register a Listener and
+ * redraw from the events; nothing here knows about components.
+ *
+ * Per-habit state lives in primitive columns indexed by the habit's id (streak, last
+ * completed epoch day, checked) next to a name column, so the streak loop touches plain
+ * int arrays and a rename only replaces one name. Habit objects are thin handles.
+ *
+ * Each habit has a Recurrence (daily unless set) and its streak counts periods of that rule
+ * that met their quota; the last completed day is then the start of the last such period.
+ * The HabitSchedule on top answers which habits are due today.
+ *
+ * Not thread-safe: the app confines it to the EDT.
+ */
+public class HabitStore {
+
+    /** lastCompletedDay() of a habit that was never completed. */
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    public final class Habit {
+        private final int id;
+        private int index;
+
+        private Habit(int id) { this.id = id; }
+
+        /** Stable for the lifetime of the store, never reused after a delete. */
+        public int id() { return id; }
+
+        /** Current position in the list; shifts when an earlier habit is removed. */
+        public int index() { return index; }
+
+        public String name() { return nameOf(id); }
+
+        public boolean checked() { return checks[id]; }
+
+        public int streak() { return streaks[id]; }
+
+        /** Epoch day, or NO_DAY. */
+        public int lastCompletedDay() { return lastDays[id]; }
+
+        public LocalDate lastCompleted() { return lastDays[id] == NO_DAY ? null : LocalDate.ofEpochDay(lastDays[id]); }
+
+        public Recurrence recurrence() { return HabitStore.this.recurrence(id); }
+    }
+
+    public interface Listener {
+        void habitAdded(Habit habit);
+        void habitChanged(Habit habit);
+        void habitRemoved(Habit habit, int index);
+        /** Habits fromIndex..toIndex (inclusive) were appended together, e.g. by an import. */
+        void habitsAdded(int fromIndex, int toIndex);
+        /** Many habits changed at once (daily reset, streak bump); sent instead of one event per habit. */
+        void habitsChanged();
+    }
+
+    private final List<Habit> habits = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final HabitHistory history = new HabitHistory();
+    private int checkedCount;
+    private LocalDate checksDay; // the day the checks belong to: the last daily reset, null if unknown
+
+    // Columns by id. A deleted id keeps its slot (byId is null) so ids are never reused.
+    private int nextId;
+    private Habit[] byId = new Habit[16];
+    private String[] names = new String[16]; // null while the name still sits undecoded in source
+    private boolean[] checks = new boolean[16];
+    private int[] streaks = new int[16];
+    private int[] lastDays = new int[16];
+    private int[] sourceRecords = new int[16];
+    private Recurrence[] rules = new Recurrence[16]; // null for daily
+    private HabitSnapshot source;
+    private HabitNameIndex nameIndex; // built on first use
+    private final HabitSchedule schedule = new HabitSchedule(this);
+
+    public void addListener(Listener l) { listeners.add(l); }
+
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    // ---------------- Queries ----------------
+    public int size() { return habits.size(); }
+
+    public Habit get(int index) { return habits.get(index); }
+
+    /** Returns null for ids that were deleted. */
+    public Habit byId(int id) { return id >= 0 && id < nextId ? byId[id] : null; }
+
+    public List<Habit> habits() { return java.util.Collections.unmodifiableList(habits); }
+
+    public int checkedCount() { return checkedCount; }
+
+    public boolean allChecked() { return !habits.isEmpty() && checkedCount == habits.size(); }
+
+    /** Day of the last daily reset, so the checks are that day's; null if no file recorded one. */
+    public LocalDate checksDay() { return checksDay; }
+
+    /** Name search over the habits, built on first call and kept current after that. */
+    public HabitNameIndex nameIndex() {
+        if (nameIndex == null) nameIndex = new HabitNameIndex(this);
+        return nameIndex;
+    }
+
+    /** Per-day completions by habit id; read-only for callers, update through recordDay. */
+    public HabitHistory history() { return history; }
+
+    /** Due-today index; current from the first catchUp() on. */
+    public HabitSchedule schedule() { return schedule; }
+
+    Recurrence recurrence(int id) {
+        Recurrence r = rules[id];
+        return r == null ? Recurrence.DAILY : r;
+    }
+
+    private String nameOf(int id) {
+        String name = names[id];
+        if (name == null) names[id] = name = source.name(sourceRecords[id]);
+        return name;
+    }
+
+    // ---------------- Mutations ----------------
+    public Habit add(String name, boolean checked) { return add(habits.size(), name, checked); }
+
+    public Habit add(int index, String name, boolean checked) {
+        Habit h = newHabit(nextId);
+        names[h.id] = name;
+        checks[h.id] = checked;
+        insert(h, index);
+        return h;
+    }
+
+    private Habit newHabit(int id) {
+        ensureCapacity(id);
+        Habit h = new Habit(id);
+        byId[id] = h;
+        lastDays[id] = NO_DAY;
+        rules[id] = null;
+        nextId = Math.max(nextId, id + 1);
+        return h;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < byId.length) return;
+        int n = Math.max(id + 1, byId.length * 2);
+        byId = Arrays.copyOf(byId, n);
+        names = Arrays.copyOf(names, n);
+        checks = Arrays.copyOf(checks, n);
+        streaks = Arrays.copyOf(streaks, n);
+        lastDays = Arrays.copyOf(lastDays, n);
+        sourceRecords = Arrays.copyOf(sourceRecords, n);
+        rules = Arrays.copyOf(rules, n);
+    }
+
+    private void append(Habit h) { insert(h, habits.size()); }
+
+    private void insert(Habit h, int index) {
+        h.index = index;
+        habits.add(index, h);
+        for (int i = index + 1; i < habits.size(); i++) habits.get(i).index = i;
+        if (checks[h.id]) checkedCount++;
+        if (nameIndex != null) nameIndex.added(h);
+        schedule.changed(h.id);
+        for (Listener l : listeners) l.habitAdded(h);
+    }
+
+    /** Appends imported habits with their state and history; one habitsAdded event for all of them. */
+    public void addAll(List<HabitTransfer.Row> rows) {
+        if (rows.isEmpty()) return;
+        int from = habits.size();
+        for (HabitTransfer.Row r : rows) {
+            Habit h = newHabit(nextId);
+            names[h.id] = r.name;
+            checks[h.id] = r.checked;
+            streaks[h.id] = r.streak;
+            lastDays[h.id] = r.lastDay;
+            for (long day : r.days) history.set(h.id, day, true);
+            h.index = habits.size();
+            habits.add(h);
+            if (r.checked) checkedCount++;
+            if (nameIndex != null) nameIndex.added(h);
+            schedule.changed(h.id);
+        }
+        for (Listener l : listeners) l.habitsAdded(from, habits.size() - 1);
+    }
+
+    public void setChecked(Habit h, boolean checked) {
+        if (checks[h.id] == checked) return;
+        checks[h.id] = checked;
+        checkedCount += checked ? 1 : -1;
+        fireChanged(h);
+    }
+
+    public void rename(Habit h, String name) {
+        if (h.name().equals(name)) return;
+        names[h.id] = name;
+        if (nameIndex != null) nameIndex.renamed(h);
+        fireChanged(h);
+    }
+
+    public void setStreak(Habit h, int streak, LocalDate lastCompleted) {
+        streaks[h.id] = streak;
+        lastDays[h.id] = lastCompleted == null ? NO_DAY : (int) lastCompleted.toEpochDay();
+        fireChanged(h);
+    }
+
+    /** The removed handle keeps answering with its last values for listeners and the journal. */
+    public void remove(Habit h) {
+        int index = h.index;
+        habits.remove(index);
+        byId[h.id] = null;
+        history.remove(h.id);
+        for (int i = index; i < habits.size(); i++) habits.get(i).index = i;
+        if (checks[h.id]) checkedCount--;
+        if (nameIndex != null) nameIndex.removed(h);
+        schedule.removed(h.id);
+        for (Listener l : listeners) l.habitRemoved(h, index);
+    }
+
+    public void recordDay(Habit h, LocalDate day, boolean done) {
+        history.set(h.id, day.toEpochDay(), done);
+        if (day.toEpochDay() < schedule.today()) schedule.changed(h.id); // today's own record does not move the due set
+        fireChanged(h);
+    }
+
+    /** Changes the habit's rule; its streak is recounted from history under the new one. */
+    public void setRecurrence(Habit h, Recurrence rule, LocalDate today) {
+        if (recurrence(h.id).equals(rule)) return;
+        rules[h.id] = rule.equals(Recurrence.DAILY) ? null : rule;
+        recount(h.id, today.toEpochDay());
+        schedule.changed(h.id);
+        fireChanged(h);
+    }
+
+    /** Daily reset: the checks start over for day (null keeps the day as it was). */
+    public void uncheckAll(LocalDate day) {
+        if (day != null) checksDay = day;
+        Arrays.fill(checks, 0, nextId, false);
+        checkedCount = 0;
+        fireAllChanged();
+    }
+
+    // ---------------- Streak Logic ----------------
+
+    /**
+     * Brings the habit's streak in line with today's completion: the first time its current
+     * period meets the quota the streak grows (or restarts at 1 if the period before was
+     * missed), and unchecking below the quota takes that back. Returns true if it changed.
+     */
+    public boolean updateStreak(Habit h, LocalDate today) {
+        int id = h.id;
+        Recurrence r = recurrence(id);
+        long start = r.periodStart(today.toEpochDay());
+        if (start == Recurrence.NONE) return false; // not one of this habit's days
+        boolean met = periodMet(id, r, start);
+        if (met && lastDays[id] != start) {
+            streaks[id] = lastDays[id] != NO_DAY && lastDays[id] == r.previousPeriodStart(start) ? streaks[id] + 1 : 1;
+            lastDays[id] = (int) start;
+        } else if (!met && lastDays[id] == start) {
+            streaks[id] = Math.max(0, streaks[id] - 1);
+            lastDays[id] = streaks[id] == 0 ? NO_DAY : (int) r.previousPeriodStart(start);
+        } else {
+            return false;
+        }
+        fireChanged(h);
+        return true;
+    }
+
+    private boolean periodMet(int id, Recurrence r, long start) {
+        return history.countCompleted(id, start, r.periodEnd(start)) >= r.quota();
+    }
+
+    /** Streak from history alone: met periods back from the latest one (or the one before, while it is open). */
+    private void recount(int id, long today) {
+        Recurrence r = recurrence(id);
+        long p = r.latestPeriodStart(today);
+        if (!periodMet(id, r, p) && r.periodEnd(p) >= today) p = r.previousPeriodStart(p);
+        int streak = 0;
+        int last = NO_DAY;
+        for (; periodMet(id, r, p); p = r.previousPeriodStart(p)) {
+            if (streak++ == 0) last = (int) p;
+        }
+        streaks[id] = streak;
+        lastDays[id] = last;
+    }
+
+    /**
+     * Moves the due-today set to today and breaks the streak of every habit that let a whole
+     * period pass without meeting its quota, however long ago that was. Only habits the
+     * schedule has reason to look at today are visited (all of them on the first call).
+     * Idempotent. Run at startup and at each day boundary. Returns the number of streaks broken.
+     */
+    public int catchUp(LocalDate today) {
+        long day = today.toEpochDay();
+        long before = schedule.today();
+        int[] broken = {0};
+        schedule.rollover(day, id -> {
+            if (streaks[id] == 0) return;
+            Recurrence r = recurrence(id);
+            long current = r.latestPeriodStart(day);
+            boolean open = r.periodEnd(current) >= day; // else it is over (a weekday habit's off day) and had to be met
+            if (lastDays[id] != NO_DAY && (lastDays[id] == current || open && lastDays[id] == r.previousPeriodStart(current))) return;
+            streaks[id] = 0;
+            broken[0]++;
+        });
+        if (broken[0] > 0 || (before != Recurrence.NONE && before != day)) fireAllChanged(); // due marks moved
+        return broken[0];
+    }
+
+    private void fireChanged(Habit h) {
+        for (Listener l : listeners) l.habitChanged(h);
+    }
+
+    private void fireAllChanged() {
+        for (Listener l : listeners) l.habitsChanged();
+    }
+
+    // ---------------- Persistence ----------------
+
+    /**
+     * Loads habits.txt ("checked|name") and applies habits_meta.txt ("name|streak|date") by name.
+     * Malformed lines are skipped as before and reported with their line number on stderr.
+     */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void load(File habitFile, File streakFile) {
+        Map<String, Meta> meta = new HashMap<>();
+        if (streakFile.exists()) {
+            try {
+                HabitFileParser.parseMeta(streakFile, (name, streak, lastCompleted) ->
+                        meta.put(name, new Meta(streak, lastCompleted == null ? NO_DAY : (int) lastCompleted.toEpochDay())),
+                        HabitFileParser.STDERR);
+            } catch (IOException ex) { ex.printStackTrace(); }
+        }
+
+        if (!habitFile.exists()) return;
+        try {
+            HabitFileParser.parseHabits(habitFile, (name, checked) -> {
+                Habit h = add(name, checked);
+                Meta m = meta.get(name);
+                if (m != null) {
+                    streaks[h.id] = m.streak;
+                    lastDays[h.id] = m.lastDay;
+                }
+            }, HabitFileParser.STDERR);
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    /**
+     * Loads a binary snapshot into an empty store, instead of the text files. Habits keep the
+     * ids they were saved with, and their names stay undecoded in the snapshot's string table
+     * until first asked for; the file itself is unmapped once the records are read.
+     */
+    public void load(HabitSnapshot snapshot) {
+        source = snapshot;
+        for (int i = 0; i < snapshot.size(); i++) {
+            Habit h = newHabit(snapshot.id(i));
+            sourceRecords[h.id] = i;
+            checks[h.id] = snapshot.checked(i);
+            streaks[h.id] = snapshot.streak(i);
+            lastDays[h.id] = snapshot.lastCompletedDay(i);
+            append(h);
+        }
+        snapshot.release();
+    }
+
+    // habits_schedule.txt and habits_history.bin are keyed by name next to the text snapshot,
+    // which hands out ids afresh on every load, and by id next to habits.bin, which keeps them:
+    // loading a binary profile then never decodes a name. Name keys are matched in list order
+    // for duplicate names; the name table is only built if a name-keyed entry turns up.
+
+    /** Marks the id-keyed form of the schedule file. */
+    private static final String IDS = "#ids";
+
+    private final class Unclaimed implements HabitHistory.NameLookup {
+        private Map<String, ArrayDeque<Habit>> byName;
+
+        @Override
+        public int claim(String name) {
+            if (byName == null) {
+                byName = new HashMap<>();
+                for (Habit h : habits) byName.computeIfAbsent(h.name(), k -> new ArrayDeque<>()).add(h);
+            }
+            ArrayDeque<Habit> q = byName.get(name);
+            Habit h = q == null ? null : q.poll();
+            return h == null ? -1 : h.id;
+        }
+    }
+
+    /** Ids in the files are this store's only when it was loaded from a binary snapshot. */
+    private boolean hasSnapshotId(int id) { return source != null && byId(id) != null; }
+
+    /**
+     * Loads habits_schedule.txt after load(): "rule|name" lines, or "rule|id" lines after a
+     * first line of #ids; daily habits are left out. Unreadable lines are reported on stderr
+     * and leave the habit daily.
+     */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void loadSchedules(File scheduleFile) {
+        if (!scheduleFile.exists()) return;
+        Unclaimed unclaimed = new Unclaimed();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(scheduleFile), java.nio.charset.StandardCharsets.UTF_8))) {
+            int lineNo = 0;
+            boolean byId = false;
+            for (String line; (line = r.readLine()) != null; ) {
+                lineNo++;
+                if (lineNo == 1 && line.equals(IDS)) {
+                    byId = true;
+                    continue;
+                }
+                int bar = line.indexOf('|');
+                try {
+                    Recurrence rule = Recurrence.parse(line.substring(0, bar));
+                    String key = line.substring(bar + 1);
+                    int id = byId ? Integer.parseInt(key) : unclaimed.claim(key);
+                    if (byId && !hasSnapshotId(id)) id = -1;
+                    if (id >= 0) rules[id] = rule.equals(Recurrence.DAILY) ? null : rule;
+                } catch (RuntimeException e) {
+                    System.err.println(scheduleFile + ":" + lineNo + ": skipping bad schedule line: " + line);
+                }
+            }
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    /** Lines for habits_schedule.txt, keyed by id for a binary profile. */
+    public List<String> scheduleLines(boolean byId) {
+        List<String> lines = new ArrayList<>();
+        if (byId) lines.add(IDS);
+        for (Habit h : habits) if (rules[h.id] != null) lines.add(rules[h.id] + "|" + (byId ? Integer.toString(h.id) : h.name()));
+        return lines;
+    }
+
+    private static final class Meta {
+        final int streak;
+        final int lastDay;
+
+        Meta(int streak, int lastDay) {
+            this.streak = streak;
+            this.lastDay = lastDay;
+        }
+    }
+
+    public List<String> habitLines() {
+        List<String> lines = new ArrayList<>(habits.size());
+        for (Habit h : habits) lines.add((checks[h.id] ? "1" : "0") + "|" + h.name());
+        return lines;
+    }
+
+    /** Loads habits_history.bin after load(), keyed like the schedule file. */
+    public void loadHistory(File historyFile) {
+        history.load(historyFile, new Unclaimed(), this::hasSnapshotId);
+    }
+
+    /** habits_history.bin, keyed by id for a binary profile. */
+    public byte[] historyBytes(boolean byId) {
+        int[] ids = new int[habits.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = habits.get(i).id;
+        return history.toBytes(ids, byId ? null : this::nameOf);
+    }
+
+    /** Loads habits_day.txt (the day of the last reset) after load(); a bad line is reported and ignored. */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void loadChecksDay(File dayFile) {
+        if (!dayFile.exists()) return;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(dayFile), java.nio.charset.StandardCharsets.UTF_8))) {
+            String line = r.readLine();
+            try {
+                if (line != null) checksDay = LocalDate.parse(line);
+            } catch (RuntimeException e) {
+                System.err.println(dayFile + ":1: skipping bad day line: " + line);
+            }
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    /** Lines for habits_day.txt, empty while the day is unknown. */
+    public List<String> checksDayLines() {
+        return checksDay == null ? List.of() : List.of(checksDay.toString());
+    }
+
+    /** Only habits that have ever been completed get a meta line. */
+    public List<String> streakLines() {
+        List<String> lines = new ArrayList<>();
+        for (Habit h : habits) {
+            int id = h.id;
+            if (streaks[id] == 0 && lastDays[id] == NO_DAY) continue;
+            lines.add(h.name() + "|" + streaks[id] + "|" + (lastDays[id] == NO_DAY ? "" : LocalDate.ofEpochDay(lastDays[id]).toString()));
+        }
+        return lines;
+    }
+
+    // ---------------- Merging ----------------
+
+    /**
+     * Brings this store in line with fresh, loaded from files another process rewrote. Rows are
+     * matched by name up to the first and from the last difference; between those, rows are
+     * renamed in place when the counts agree and replaced otherwise. Only rows whose values
+     * actually differ fire events, so views repaint just those.
+     */
+    public void merge(HabitStore fresh) {
+        int n = habits.size();
+        int m = fresh.size();
+        int prefix = 0;
+        while (prefix < n && prefix < m && get(prefix).name().equals(fresh.get(prefix).name())) prefix++;
+        int suffix = 0;
+        while (suffix < n - prefix && suffix < m - prefix
+                && get(n - 1 - suffix).name().equals(fresh.get(m - 1 - suffix).name())) suffix++;
+        if (n != m) { // otherwise the rows in between are renamed in place below
+            for (int i = n - suffix - 1; i >= prefix; i--) remove(get(i));
+            for (int i = prefix; i < m - suffix; i++) {
+                Habit f = fresh.get(i);
+                Habit h = newHabit(nextId);
+                names[h.id] = f.name();
+                checks[h.id] = f.checked();
+                streaks[h.id] = f.streak();
+                lastDays[h.id] = f.lastCompletedDay();
+                rules[h.id] = fresh.rules[f.id];
+                history.adopt(h.id, fresh.history, f.id);
+                insert(h, i);
+            }
+        }
+        for (int i = 0; i < m; i++) copy(get(i), fresh, fresh.get(i));
+        if (fresh.checksDay != null) checksDay = fresh.checksDay;
+    }
+
+    private void copy(Habit h, HabitStore from, Habit f) {
+        boolean changed = false;
+        if (!h.name().equals(f.name())) {
+            names[h.id] = f.name();
+            if (nameIndex != null) nameIndex.renamed(h);
+            changed = true;
+        }
+        if (checks[h.id] != f.checked()) {
+            checks[h.id] = f.checked();
+            checkedCount += f.checked() ? 1 : -1;
+            changed = true;
+        }
+        if (streaks[h.id] != f.streak() || lastDays[h.id] != f.lastCompletedDay()) {
+            streaks[h.id] = f.streak();
+            lastDays[h.id] = f.lastCompletedDay();
+            changed = true;
+        }
+        boolean scheduleChanged = history.adopt(h.id, from.history, f.id);
+        if (!recurrence(h.id).equals(from.recurrence(f.id))) {
+            rules[h.id] = from.rules[f.id];
+            scheduleChanged = true;
+        }
+        if (scheduleChanged) {
+            schedule.changed(h.id);
+            changed = true;
+        }
+        if (changed) fireChanged(h);
+    }
+
+    /** Applies the journal on top of what load() read. Returns the number of records applied. */
+    public int replay(HabitJournal journal) { return journal.replay(journalHandler()); }
+
+    /** Applies journal records, e.g. ones another process appended. Returns the number applied. */
+    public int apply(List<String> records) { return HabitJournal.apply(records, journalHandler()); }
+
+    private HabitJournal.Handler journalHandler() {
+        return new HabitJournal.Handler() {
+            @Override
+            public void add(String name, boolean checked) { HabitStore.this.add(name, checked); }
+
+            @Override
+            public void insert(int index, String name, boolean checked) { HabitStore.this.add(index, name, checked); }
+
+            @Override
+            public void check(int index, boolean checked) { setChecked(get(index), checked); }
+
+            @Override
+            public void rename(int index, String name) { HabitStore.this.rename(get(index), name); }
+
+            @Override
+            public void delete(int index) { remove(get(index)); }
+
+            @Override
+            public void uncheckAll(LocalDate day) { HabitStore.this.uncheckAll(day); }
+
+            @Override
+            public void streak(int index, int streak, LocalDate lastCompleted) { setStreak(get(index), streak, lastCompleted); }
+
+            @Override
+            public void streak(String name, int streak, LocalDate lastCompleted) {
+                for (Habit h : habits) if (h.name().equals(name)) setStreak(h, streak, lastCompleted);
+            }
+
+            @Override
+            public void history(int index, LocalDate day, boolean done) { recordDay(get(index), day, done); }
+
+            @Override
+            public void recurrence(int index, Recurrence rule, LocalDate since) { setRecurrence(get(index), rule, since); }
+        };
+    }
+}
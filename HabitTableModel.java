@@ -0,0 +1,67 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table view of a HabitStore for the habit list. Rows map one-to-one to store positions
+ * and every store event becomes a single-row table event, so the JTable only lays out and
+ * paints the rows that are on screen.
+ */
+public class HabitTableModel extends AbstractTableModel implements HabitStore.Listener {
+
+    public static final int CHECKED = 0;
+    public static final int NAME = 1;
+    public static final int REPEAT = 2;
+    public static final int EDIT = 3;
+    public static final int DELETE = 4;
+
+    private static final String[] COLUMNS = {"", "Habit", "Repeat", "Edit", "Delete"};
+
+    private final HabitStore store;
+
+    public HabitTableModel(HabitStore store) {
+        this.store = store;
+        store.addListener(this);
+    }
+
+    public HabitStore.Habit habitAt(int row) { return store.get(row); }
+
+    @Override
+    public int getRowCount() { return store.size(); }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Class<?> getColumnClass(int column) { return column == CHECKED ? Boolean.class : String.class; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        HabitStore.Habit h = store.get(row);
+        switch (column) {
+            case CHECKED: return h.checked();
+            case NAME: return h.name();
+            case REPEAT: return h.recurrence().describe();
+            default: return COLUMNS[column];
+        }
+    }
+
+    // ---------------- Store events ----------------
+    @Override
+    public void habitAdded(HabitStore.Habit habit) { fireTableRowsInserted(habit.index(), habit.index()); }
+
+    @Override
+    public void habitChanged(HabitStore.Habit habit) { fireTableRowsUpdated(habit.index(), habit.index()); }
+
+    @Override
+    public void habitRemoved(HabitStore.Habit habit, int index) { fireTableRowsDeleted(index, index); }
+
+    @Override
+    public void habitsAdded(int fromIndex, int toIndex) { fireTableRowsInserted(fromIndex, toIndex); }
+
+    @Override
+    public void habitsChanged() {
+        if (store.size() > 0) fireTableRowsUpdated(0, store.size() - 1);
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk import / export of habits as CSV or JSON lines, one habit per row with its checked
+ * state, streak, last completed date and the completed days of its history:
+ *
+ *   CSV    name,checked,streak,last_completed,days
+ *          "Read, 20 pages",1,3,2026-10-16,2026-10-14;2026-10-15;2026-10-16
+ *   JSONL  {"name":"Read, 20 pages","checked":true,"streak":3,"lastCompleted":"2026-10-16","days":["2026-10-14",...]}
+ *
+ * The format follows the file extension (.jsonl / .json, anything else is CSV). Both sides
+ * stream: a Reader hands out one Row at a time and a Writer appends one, so a file of
+ * millions of habits never sits in memory as a whole. Batching against the store is up to
+ * the caller (HabitProfile.importHabits, the app's import/export workers).
+ */
+public final class HabitTransfer {
+
+    public enum Format {
+        CSV, JSONL;
+
+        public static Format of(File file) {
+            String name = file.getName().toLowerCase(java.util.Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private static final String CSV_HEADER = "name,checked,streak,last_completed,days";
+
+    /** One habit as it appears in a file. */
+    public static final class Row {
+        public final String name;
+        public final boolean checked;
+        public final int streak;
+        public final int lastDay; // epoch day or HabitStore.NO_DAY
+        public final long[] days; // completed epoch days, ascending
+
+        public Row(String name, boolean checked, int streak, int lastDay, long[] days) {
+            this.name = name;
+            this.checked = checked;
+            this.streak = streak;
+            this.lastDay = lastDay;
+            this.days = days;
+        }
+
+        public static Row of(HabitStore store, HabitStore.Habit h) {
+            return new Row(h.name(), h.checked(), h.streak(), h.lastCompletedDay(), store.history().completedDays(h.id()));
+        }
+    }
+
+    private HabitTransfer() { }
+
+    // ---------------- Reading ----------------
+
+    /** Streams rows out of a file; malformed rows are reported and skipped. */
+    public static final class Reader implements Closeable {
+        private final File file;
+        private final Format format;
+        private final HabitFileParser.Problems problems;
+        private final CountingInputStream counted;
+        private final BufferedReader in;
+        private int lineNumber;
+
+        public Reader(File file, HabitFileParser.Problems problems) throws IOException {
+            this.file = file;
+            this.format = Format.of(file);
+            this.problems = problems;
+            this.counted = new CountingInputStream(new FileInputStream(file));
+            this.in = new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        /** Share of the file read so far, 0 to 100. */
+        public int percentRead() {
+            long length = file.length();
+            return length == 0 ? 100 : (int) Math.min(100, counted.count * 100 / length);
+        }
+
+        /** The next well-formed row, or null at the end of the file. */
+        public Row next() throws IOException {
+            while (true) {
+                String line = in.readLine();
+                if (line == null) return null;
+                lineNumber++;
+                if (line.isBlank()) continue;
+                try {
+                    Row row = format == Format.CSV ? csvRow(line) : jsonRow(line);
+                    if (row != null) return row;
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    problems.malformed(file, lineNumber, e.getMessage());
+                }
+            }
+        }
+
+        private Row csvRow(String line) throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            int start = lineNumber;
+            boolean quoted = false;
+            for (int i = 0; ; i++) {
+                if (i == line.length()) {
+                    if (!quoted) break;
+                    // a quoted field running on to the next line
+                    String more = in.readLine();
+                    if (more == null) throw new IllegalArgumentException("unterminated quote from line " + start);
+                    lineNumber++;
+                    field.append('\n');
+                    line = more;
+                    i = -1;
+                    continue;
+                }
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') field.append(c);
+                    else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+                    else quoted = false;
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            if (fields.size() == 5 && String.join(",", fields).equals(CSV_HEADER)) return null;
+            if (fields.size() > 5) throw new IllegalArgumentException("expected " + CSV_HEADER);
+            while (fields.size() < 5) fields.add("");
+            String days = fields.get(4);
+            return row(fields.get(0), bool(fields.get(1)), fields.get(2).isEmpty() ? 0 : parseStreak(fields.get(2)),
+                    fields.get(3), days.isEmpty() ? new String[0] : days.split(";"));
+        }
+
+        private static boolean bool(String s) {
+            switch (s.trim().toLowerCase(java.util.Locale.ROOT)) {
+                case "1": case "true": case "yes": return true;
+                case "": case "0": case "false": case "no": return false;
+                default: throw new IllegalArgumentException("bad checked value " + s);
+            }
+        }
+
+        private Row jsonRow(String line) {
+            Json p = new Json(line);
+            String name = null;
+            boolean checked = false;
+            int streak = 0;
+            String last = "";
+            String[] days = new String[0];
+            p.expect('{');
+            if (!p.peek('}')) {
+                do {
+                    String key = p.string();
+                    p.expect(':');
+                    switch (key) {
+                        case "name": name = p.string(); break;
+                        case "checked": checked = p.bool(); break;
+                        case "streak": streak = parseStreak(p.number()); break;
+                        case "lastCompleted": last = p.peek('n') ? p.nullValue("") : p.string(); break;
+                        case "days": days = p.strings(); break;
+                        default: p.skip(); break;
+                    }
+                } while (p.peek(',') && p.expect(','));
+            }
+            p.expect('}');
+            if (name == null) throw new IllegalArgumentException("missing name");
+            return row(name, checked, streak, last, days);
+        }
+
+        private static int parseStreak(String s) {
+            try {
+                int streak = Integer.parseInt(s.trim());
+                if (streak >= 0) return streak;
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("bad streak " + s);
+        }
+
+        private static Row row(String name, boolean checked, int streak, String last, String[] days) {
+            if (name.isBlank()) throw new IllegalArgumentException("empty name");
+            // the snapshot and the journal are line based
+            if (name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) throw new IllegalArgumentException("line break in name");
+            long[] epochDays = new long[days.length];
+            for (int i = 0; i < days.length; i++) epochDays[i] = LocalDate.parse(days[i].trim()).toEpochDay();
+            java.util.Arrays.sort(epochDays);
+            int lastDay = last.isBlank() ? HabitStore.NO_DAY : (int) LocalDate.parse(last.trim()).toEpochDay();
+            return new Row(name, checked, streak, lastDay, epochDays);
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) { super(in); }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    // ---------------- Writing ----------------
+
+    /** Appends rows to a new file in the format its extension names. */
+    public static final class Writer implements Closeable {
+        private final Format format;
+        private final BufferedWriter out;
+        private final StringBuilder sb = new StringBuilder();
+
+        public Writer(File file) throws IOException {
+            this.format = Format.of(file);
+            this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+            if (format == Format.CSV) {
+                out.write(CSV_HEADER);
+                out.newLine();
+            }
+        }
+
+        public void write(Row row) throws IOException {
+            sb.setLength(0);
+            if (format == Format.CSV) csv(row);
+            else json(row);
+            out.append(sb).append('\n');
+        }
+
+        private void csv(Row row) {
+            String name = row.name;
+            if (name.indexOf(',') >= 0 || name.indexOf('"') >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) {
+                sb.append('"').append(name.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(name);
+            }
+            sb.append(',').append(row.checked ? '1' : '0').append(',').append(row.streak).append(',');
+            if (row.lastDay != HabitStore.NO_DAY) sb.append(LocalDate.ofEpochDay(row.lastDay));
+            sb.append(',');
+            for (int i = 0; i < row.days.length; i++) {
+                if (i > 0) sb.append(';');
+                sb.append(LocalDate.ofEpochDay(row.days[i]));
+            }
+        }
+
+        private void json(Row row) {
+            sb.append("{\"name\":");
+            Json.quote(sb, row.name);
+            sb.append(",\"checked\":").append(row.checked).append(",\"streak\":").append(row.streak).append(",\"lastCompleted\":");
+            if (row.lastDay == HabitStore.NO_DAY) sb.append("null");
+            else sb.append('"').append(LocalDate.ofEpochDay(row.lastDay)).append('"');
+            sb.append(",\"days\":[");
+            for (int i = 0; i < row.days.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append('"').append(LocalDate.ofEpochDay(row.days[i])).append('"');
+            }
+            sb.append("]}");
+        }
+
+        @Override
+        public void close() throws IOException { out.close(); }
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebases journal records two processes wrote against the same rows. Records name habits by
+ * row index, so once another process has appended or deleted habits, the rows this process's
+ * queued records point at have moved; and the other process's records have to move past this
+ * process's own changes before the local store, which already has them, can apply them.
+ *
+ * rebase(rows, ours, theirs) returns ours as they apply after theirs (the order on disk) and
+ * theirs as they apply after ours (the order in the local store); both end on the same rows.
+ * Theirs are first on disk, so where both set the same field of the same habit, ours win in
+ * both orders. An add of theirs comes back as an I record that inserts at its row.
+ */
+final class JournalRebase {
+
+    private JournalRebase() {}
+
+    static final class Result {
+        final String[] ours;       // one per record passed in, null where it no longer applies
+        final List<String> theirs;
+
+        Result(String[] ours, List<String> theirs) {
+            this.ours = ours;
+            this.theirs = theirs;
+        }
+    }
+
+    /** ours and theirs were both written against the same state, which has rows habits. */
+    static Result rebase(int rows, List<String> ours, List<String> theirs) {
+        List<Op> them = new ArrayList<>(theirs.size());
+        int n = rows;
+        for (String record : theirs) {
+            Op t = Op.parse(record, n);
+            n += t.rowChange();
+            them.add(t);
+        }
+        String[] out = new String[ours.size()];
+        n = rows;
+        for (int i = 0; i < out.length; i++) {
+            Op a = Op.parse(ours.get(i), n);
+            n += a.rowChange();
+            List<Op> next = new ArrayList<>(them.size() + 1);
+            for (Op t : them) {
+                if (a == null) next.add(t);
+                else a = transform(a, t, next);
+            }
+            them = next;
+            out[i] = a == null ? null : a.record(true);
+        }
+        List<String> rebased = new ArrayList<>(them.size());
+        for (Op t : them) rebased.add(t.record(false));
+        return new Result(out, rebased);
+    }
+
+    /** +1 for a record that adds a row, -1 for one that deletes one. */
+    static int rowChange(String record) { return Op.parse(record, 0).rowChange(); }
+
+    static int rowChange(List<String> records) {
+        int change = 0;
+        for (String record : records) change += rowChange(record);
+        return change;
+    }
+
+    /** Ours a and theirs t apply to the same rows: adds t as it applies after a, returns a as it applies after t. */
+    private static Op transform(Op a, Op t, List<Op> theirs) {
+        switch (t.kind) {
+            case 'I':
+                if (a.kind == 'U' && t.rest.startsWith("1")) {
+                    theirs.add(new Op('I', t.index, "0" + t.rest.substring(1), null)); // added before the reset on disk
+                    return a;
+                }
+                if (a.kind == 'D' && a.index < t.index) {
+                    theirs.add(t.at(t.index - 1));
+                    return a;
+                }
+                theirs.add(a.kind == 'I' && a.index < t.index ? t.at(t.index + 1) : t);
+                return a.index >= t.index ? a.at(a.index + 1) : a;
+            case 'D':
+                if (a.kind == 'I') {
+                    if (a.index <= t.index) {
+                        theirs.add(t.at(t.index + 1));
+                        return a;
+                    }
+                    theirs.add(t);
+                    return a.at(a.index - 1);
+                }
+                if (a.index == t.index) {
+                    if (a.kind != 'D') theirs.add(t);
+                    return null; // the habit is gone either way
+                }
+                theirs.add(a.kind == 'D' && a.index < t.index ? t.at(t.index - 1) : t);
+                return a.index > t.index ? a.at(a.index - 1) : a;
+            case 'U':
+                if (a.kind == 'U') return a; // ours resets last on disk, and carries the day
+                theirs.add(t);
+                // checked after the reset on disk
+                if (a.kind == 'C') theirs.add(a);
+                else if (a.kind == 'I' && a.rest.startsWith("1")) theirs.add(new Op('C', a.index, "1", null));
+                return a;
+            case '?':
+                theirs.add(t);
+                return a;
+            default: // a field of the habit at t.index
+                if (a.kind == 'I') theirs.add(a.index <= t.index ? t.at(t.index + 1) : t);
+                else if (a.kind == 'D') {
+                    if (a.index < t.index) theirs.add(t.at(t.index - 1));
+                    else if (a.index > t.index) theirs.add(t);
+                } else if (a.kind == 'U') {
+                    if (t.kind != 'C') theirs.add(t);
+                } else if (!(a.index == t.index && a.sameField(t))) theirs.add(t);
+                return a;
+        }
+    }
+
+    /** One parsed record: kind is its letter ('I' for adds too, '?' if it names no row). */
+    private static final class Op {
+        final char kind;
+        final int index;     // row, -1 if none
+        final String rest;   // what follows the row
+
+        private final String record;
+
+        private Op(char kind, int index, String rest, String record) {
+            this.kind = kind;
+            this.index = index;
+            this.rest = rest;
+            this.record = record;
+        }
+
+        /** rows is the number of rows before the record, where an A record adds one. */
+        static Op parse(String record, int rows) {
+            try {
+                char kind = record.charAt(0);
+                switch (kind) {
+                    case 'A':
+                        return new Op('I', rows, record.substring(2), record);
+                    case 'D':
+                        return new Op(kind, Integer.parseInt(record.substring(2)), "", record);
+                    case 'U':
+                        return new Op(kind, -1, "", record);
+                    case 'I': case 'C': case 'R': case 'T': case 'H': case 'Q': {
+                        String[] p = record.split("\\|", 3);
+                        return new Op(kind, Integer.parseInt(p[1]), p[2], record);
+                    }
+                    default:
+                        break;
+                }
+            } catch (RuntimeException ignored) {
+                // torn or unknown record; it passes through untouched
+            }
+            return new Op('?', -1, "", record);
+        }
+
+        int rowChange() { return kind == 'I' ? 1 : kind == 'D' ? -1 : 0; }
+
+        Op at(int row) { return new Op(kind, row, rest, null); }
+
+        /** Both set the same thing: H records only for the same day. */
+        boolean sameField(Op other) {
+            if (kind != other.kind) return false;
+            if (kind != 'H') return true;
+            return rest.split("\\|", 2)[0].equals(other.rest.split("\\|", 2)[0]);
+        }
+
+        /** ours: adds stay appends, since ours always land at the end. */
+        String record(boolean ours) {
+            if (kind == 'I') return ours ? "A|" + rest : "I|" + index + "|" + rest;
+            if (record != null) return record;
+            return kind == 'D' ? "D|" + index : kind + "|" + index + "|" + rest;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Just enough JSON for the server's responses and the JSON lines transfer files. Writing is
+ * quote(); everything else they write is numbers, booleans and ISO dates. Reading walks one
+ * flat object per line: strings, numbers, booleans, null, string arrays.
+ */
+final class Json {
+
+    // ---------------- Writing ----------------
+
+    /** Appends s as a quoted JSON string. */
+    static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // ---------------- Reading ----------------
+    private final String s;
+    private int at;
+
+    Json(String s) { this.s = s; }
+
+    private void space() {
+        while (at < s.length() && Character.isWhitespace(s.charAt(at))) at++;
+    }
+
+    boolean peek(char c) {
+        space();
+        return at < s.length() && s.charAt(at) == c;
+    }
+
+    boolean expect(char c) {
+        if (!peek(c)) throw new IllegalArgumentException("expected '" + c + "' at column " + (at + 1));
+        at++;
+        return true;
+    }
+
+    String string() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (at >= s.length()) throw new IllegalArgumentException("unterminated string");
+            char c = s.charAt(at++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (at >= s.length()) throw new IllegalArgumentException("unterminated string");
+            char e = s.charAt(at++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (at + 4 > s.length()) throw new IllegalArgumentException("bad \\u escape");
+                    sb.append((char) Integer.parseInt(s.substring(at, at + 4), 16));
+                    at += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+    }
+
+    String number() {
+        space();
+        int start = at;
+        while (at < s.length() && "+-0123456789.eE".indexOf(s.charAt(at)) >= 0) at++;
+        if (start == at) throw new IllegalArgumentException("expected a number at column " + (at + 1));
+        return s.substring(start, at);
+    }
+
+    boolean bool() {
+        space();
+        if (s.startsWith("true", at)) {
+            at += 4;
+            return true;
+        }
+        if (s.startsWith("false", at)) {
+            at += 5;
+            return false;
+        }
+        throw new IllegalArgumentException("expected true or false at column " + (at + 1));
+    }
+
+    <T> T nullValue(T value) {
+        space();
+        if (!s.startsWith("null", at)) throw new IllegalArgumentException("expected null at column " + (at + 1));
+        at += 4;
+        return value;
+    }
+
+    String[] strings() {
+        List<String> values = new ArrayList<>();
+        expect('[');
+        if (!peek(']')) {
+            do {
+                values.add(string());
+            } while (peek(',') && expect(','));
+        }
+        expect(']');
+        return values.toArray(new String[0]);
+    }
+
+    /** Skips one value of a field we do not read. */
+    void skip() {
+        space();
+        if (peek('"')) string();
+        else if (peek('[')) {
+            expect('[');
+            if (!peek(']')) {
+                do {
+                    skip();
+                } while (peek(',') && expect(','));
+            }
+            expect(']');
+        } else if (peek('{')) {
+            expect('{');
+            if (!peek('}')) {
+                do {
+                    string();
+                    expect(':');
+                    skip();
+                } while (peek(',') && expect(','));
+            }
+            expect('}');
+        } else if (peek('t') || peek('f')) bool();
+        else if (peek('n')) nullValue(null);
+        else number();
+    }
+}
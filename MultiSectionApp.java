@@ -1,32 +1,58 @@
 import java.awt.*;
 import java.io.*;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 import javax.swing.*;
 
 public class MultiSectionApp extends JFrame {
     private CardLayout cardLayout;
     private JPanel mainPanel;
-    private JLabel clockLabel;
-
-    private JPanel habitList;
-    private final File habitFile = new File("habits.txt");
-    private Font defaultFont;
-
-    // ---------------- Streaks ----------------
-    private final File streakFile = new File("habits_meta.txt");
-    private final java.util.Map<String, Integer> streakMap = new java.util.HashMap<>();
-    private final java.util.Map<String, LocalDate> lastCompletedMap = new java.util.HashMap<>();
-    private LocalDate lastCheckedDate = LocalDate.now();
+    private ClockComponent clock;
+
+    private JTable habitTable;
+    private HabitTableModel habitTableModel;
+    // Monospaced until the Pixelify font has loaded in the background
+    private final FontCache fonts = new FontCache(new Font("Monospaced", Font.BOLD, 48));
+
+    // ---------------- Habits ----------------
+    private HabitProfile profile; // null until loaded in the background
+    private volatile boolean persistenceClosed;
+    private HabitStore store;
+    // -Dhabits.liveReload=false stops watching for other processes writing the same files
+    private static final boolean LIVE_RELOAD = !"false".equals(System.getProperty("habits.liveReload"));
+
+    // ---------------- Scheduling ----------------
+    // Habits reset when the date changes; the Home countdown points at the same boundary.
+    private static final LocalTime RESET_TIME = LocalTime.MIDNIGHT;
+    // upper bound on one sleep, so a suspended machine notices the new day soon after waking
+    private static final java.time.Duration MAX_DAY_CHECK_INTERVAL = java.time.Duration.ofHours(1);
+    private final DeadlineScheduler scheduler = new DeadlineScheduler("habit-scheduler");
+    private final java.util.List<Ticker> tickers = new java.util.ArrayList<>();
+    private boolean minimized;
+
+    // ---------------- Reminders ----------------
+    private static final java.time.Duration SNOOZE = java.time.Duration.ofMinutes(10);
+    private HabitReminders reminders; // null until the habits are loaded
+    private JDialog reminderDialog;   // in-app notice, reused while open
+    private DefaultListModel<HabitStore.Habit> reminded;
+    private TrayIcon trayIcon;        // created on the first reminder where there is a tray
 
     // ---------------- Statistics ----------------
     private JPanel statisticsPanel;
     private JTable statsTable;
 
+    // ---------------- Pomodoro ----------------
+    private PomodoroEngine pomodoro; // null until the section is first shown
+    private PomodoroLog pomodoroLog; // shared by the Pomodoro and Statistics sections
+
+    // ---------------- Startup ----------------
+    // Sections other than Home are built on first navigation.
+    private final java.util.Map<String, java.util.function.Supplier<JPanel>> sectionFactories = new java.util.HashMap<>();
+    private String pendingSection; // requested before the habits finished loading
+    private static long launchNanos;
+    private static final long STARTUP_BUDGET_MS = Long.getLong("habits.startupBudgetMs", 500);
+    private boolean firstFramePainted;
+
     public MultiSectionApp() {
         setTitle("Habit Clock");
         setSize(700, 500);
@@ -34,16 +60,7 @@ public class MultiSectionApp extends JFrame {
         setLocationRelativeTo(null);
         setResizable(false);
 
-        // Load custom font (fallback if fails)
-        try {
-            defaultFont = Font.createFont(Font.TRUETYPE_FONT, new File("resources/fonts/PixelifySans-VariableFont_wght.ttf"))
-                    .deriveFont(Font.BOLD, 48f);
-            UIManager.put("Label.font", defaultFont.deriveFont(Font.BOLD, 14f));
-            UIManager.put("Button.font", defaultFont.deriveFont(Font.BOLD, 12f));
-            UIManager.put("Spinner.font", defaultFont.deriveFont(Font.PLAIN, 12f));
-        } catch (Exception e) {
-            defaultFont = new Font("Monospaced", Font.BOLD, 48);
-        }
+        loadFontInBackground();
 
         setIconImage(Toolkit.getDefaultToolkit().getImage("resources\\images\\habit0clock.png"));
 
@@ -52,17 +69,11 @@ public class MultiSectionApp extends JFrame {
         mainPanel = new JPanel(cardLayout);
 
         // --- Create sections ---
-        JPanel homeSection = createHomeSection(defaultFont);
-        JPanel habitSection = createHabitSection();
-        JPanel aboutSection = createAboutSection();
-        JPanel pomodoroPanel = createPomodoroSection(defaultFont);
-        JPanel statsSection = createStatisticsSection();
-
-        mainPanel.add(homeSection, "Home");
-        mainPanel.add(habitSection, "Habit Section");
-        mainPanel.add(aboutSection, "About");
-        mainPanel.add(pomodoroPanel, "Pomodoro");
-        mainPanel.add(statsSection, "Statistics");
+        mainPanel.add(createHomeSection(), "Home");
+        sectionFactories.put("Habit Section", this::createHabitSection);
+        sectionFactories.put("About", this::createAboutSection);
+        sectionFactories.put("Pomodoro", this::createPomodoroSection);
+        sectionFactories.put("Statistics", this::createStatisticsSection);
 
         // --- Navigation ---
         JPanel navPanel = new JPanel();
@@ -74,20 +85,18 @@ public class MultiSectionApp extends JFrame {
         JButton habitBtn = new JButton("Habit");
         JButton statsBtn = new JButton("Statistics");
 
-        homeBtn.addActionListener(e -> cardLayout.show(mainPanel, "Home"));
-        pomodoroBtn.addActionListener(e -> cardLayout.show(mainPanel, "Pomodoro"));
-        aboutBtn.addActionListener(e -> cardLayout.show(mainPanel, "About"));
-        habitBtn.addActionListener(e -> cardLayout.show(mainPanel, "Habit Section"));
-        statsBtn.addActionListener(e -> {
-            updateStatisticsTable();
-            cardLayout.show(mainPanel, "Statistics");
-        });
+        homeBtn.addActionListener(e -> showSection("Home"));
+        pomodoroBtn.addActionListener(e -> showSection("Pomodoro"));
+        aboutBtn.addActionListener(e -> showSection("About"));
+        habitBtn.addActionListener(e -> showSection("Habit Section"));
+        statsBtn.addActionListener(e -> showSection("Statistics"));
 
         JButton[] buttons = {homeBtn, pomodoroBtn, aboutBtn, habitBtn, statsBtn};
         for (JButton b : buttons) {
             b.setForeground(Color.white);
             b.setBackground(Color.black);
             b.setBorder(null);
+            fonts.bind(b, Font.BOLD, 12f);
             navPanel.add(b);
         }
 
@@ -97,69 +106,228 @@ public class MultiSectionApp extends JFrame {
 
         cardLayout.show(mainPanel, "Home"); // default page
 
-        // Load habits & streaks
-        loadHabits();
-        attachHabitListListener();
-        loadStreaks();
-        updateAllTooltips();
-        initStreakDisplay();
-        startDailyResetTimer();
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                if (pomodoro != null) pomodoro.stop(System.nanoTime()); // logs the session in progress
+                closePersistence();
+            }
+
+            // Display-only ticks stop while minimized and catch up once on restore.
+            @Override
+            public void windowIconified(java.awt.event.WindowEvent e) { minimized = true; }
+
+            @Override
+            public void windowDeiconified(java.awt.event.WindowEvent e) {
+                minimized = false;
+                for (Ticker t : tickers) if (t.running) t.start();
+                if (profile != null) profile.checkDayBoundary();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closePersistenceOnEdt, "habit-persistence-close"));
 
         setVisible(true);
+        loadHabitsInBackground();
+    }
+
+    // ---------------- Startup ----------------
+    private void showSection(String name) {
+        if (store == null && (name.equals("Habit Section") || name.equals("Statistics"))) {
+            pendingSection = name;
+            return;
+        }
+        java.util.function.Supplier<JPanel> factory = sectionFactories.remove(name);
+        if (factory != null) mainPanel.add(factory.get(), name);
+        cardLayout.show(mainPanel, name);
+    }
+
+    /** Parses the TTF off the EDT; bound components switch over from the fallback once it is ready. */
+    private void loadFontInBackground() {
+        new SwingWorker<Font, Void>() {
+            @Override
+            protected Font doInBackground() throws Exception {
+                return Font.createFont(Font.TRUETYPE_FONT, new File("resources/fonts/PixelifySans-VariableFont_wght.ttf"))
+                        .deriveFont(Font.BOLD, 48f);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    fonts.setBase(get());
+                } catch (Exception e) {
+                    return; // keep the fallback
+                }
+                UIManager.put("Label.font", fonts.get(Font.BOLD, 14f));
+                UIManager.put("Button.font", fonts.get(Font.BOLD, 12f));
+                UIManager.put("Spinner.font", fonts.get(Font.PLAIN, 12f));
+            }
+        }.execute();
+    }
+
+    /** Loads habits & streaks off the EDT: snapshot first, then whatever the journal recorded since. */
+    private void loadHabitsInBackground() {
+        new SwingWorker<HabitProfile, Void>() {
+            @Override
+            protected HabitProfile doInBackground() throws IOException {
+                HabitProfile loaded = new HabitProfile(new File("."), HabitProfile.BINARY_SNAPSHOT);
+                // other instances (or a sync tool) writing the same files show up live
+                if (LIVE_RELOAD) loaded.enableLiveReload(SwingUtilities::invokeLater);
+                loaded.load(HabitProfile.COMMIT_WINDOW_MS);
+                return loaded;
+            }
+
+            @Override
+            @SuppressWarnings("CallToPrintStackTrace")
+            protected void done() {
+                try {
+                    profile = get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return; // leave the files alone rather than overwrite them with an empty list
+                }
+                store = profile.store();
+                profile.checkDayBoundary();
+                scheduleDayBoundary();
+                reminders = new HabitReminders(store, new File("."), SwingUtilities::invokeLater, MultiSectionApp.this::remind);
+                if (pendingSection != null) showSection(pendingSection);
+            }
+        }.execute();
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void flushPersistence() {
+        HabitProfile p = profile;
+        try {
+            if (p != null) p.flush();
+        } catch (IOException e) {
+            e.printStackTrace(); // still queued; the worker keeps retrying until the process ends
+        }
+        PomodoroLog log = pomodoroLog;
+        if (log != null) log.flush();
+        HabitReminders r = reminders;
+        if (r != null) r.flush();
+    }
+
+    /** Final flush, then releases the journal writer, the directory lock and the file threads. */
+    private void closePersistence() {
+        if (persistenceClosed) return;
+        persistenceClosed = true;
+        flushPersistence();
+        if (profile != null) profile.close();
+        if (pomodoroLog != null) pomodoroLog.close();
+    }
+
+    /** Shutdown hook: the profile is the EDT's. A window close has already done it. */
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void closePersistenceOnEdt() {
+        if (persistenceClosed) return;
+        try {
+            SwingUtilities.invokeAndWait(this::closePersistence);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (java.lang.reflect.InvocationTargetException e) { e.printStackTrace(); }
+    }
+
+    private PomodoroLog pomodoroLog() {
+        if (pomodoroLog == null) pomodoroLog = new PomodoroLog(new File("."), SwingUtilities::invokeLater);
+        return pomodoroLog;
+    }
+
+    /** Startup measurement hook: reports time-to-first-frame with -Dhabits.startupTrace=true. */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (firstFramePainted) return;
+        firstFramePainted = true;
+        long millis = (System.nanoTime() - launchNanos) / 1_000_000L;
+        if (Boolean.getBoolean("habits.startupTrace") || millis > STARTUP_BUDGET_MS) {
+            System.err.printf("time-to-first-frame: %d ms (budget %d ms)%n", millis, STARTUP_BUDGET_MS);
+        }
     }
 
     // ---------------- Home Section ----------------
-    private JPanel createHomeSection(Font font) {
+    private JPanel createHomeSection() {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
         panel.setBackground(Color.black);
         panel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        clockLabel = new JLabel("", SwingConstants.CENTER);
-        clockLabel.setFont(font.deriveFont(Font.BOLD, 60f));
-        clockLabel.setForeground(Color.white);
-        clockLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        clock = new ClockComponent();
+        fonts.bind(clock, Font.BOLD, 60f);
+        clock.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         JLabel resetLabel = new JLabel("", SwingConstants.CENTER);
-        resetLabel.setFont(font.deriveFont(Font.PLAIN, 18f));
+        fonts.bind(resetLabel, Font.PLAIN, 18f);
         resetLabel.setForeground(Color.LIGHT_GRAY);
         resetLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         panel.add(Box.createVerticalGlue());
-        panel.add(clockLabel);
+        panel.add(clock);
         panel.add(Box.createVerticalStrut(15));
         panel.add(resetLabel);
         panel.add(Box.createVerticalGlue());
 
-        Timer timer = new Timer(1000, e -> updateClock());
-        timer.start();
-        updateClock();
-
-        Timer resetTimer = new Timer(60 * 1000, e -> updateResetCountdown(resetLabel));
-        resetTimer.start();
-        updateResetCountdown(resetLabel);
+        new Ticker(this::updateClock, DeadlineScheduler::nextSecond).start();
+        new Ticker(() -> updateResetCountdown(resetLabel), DeadlineScheduler::nextMinute).start();
 
         return panel;
     }
 
     private void updateClock() {
-        LocalTime now = LocalTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-        clockLabel.setText(now.format(formatter));
+        clock.tick(System.currentTimeMillis());
     }
 
     private void updateResetCountdown(JLabel label) {
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime nextReset = now.withHour(3).withMinute(0).withSecond(0).withNano(0);
-        if (!now.isBefore(nextReset)) nextReset = nextReset.plusDays(1);
-
-        java.time.Duration duration = java.time.Duration.between(now, nextReset);
+        java.time.Duration duration = java.time.Duration.between(now, nextReset(now));
         long hours = duration.toHours();
         long minutes = duration.toMinutes() % 60;
         label.setText(String.format("🌙 Next reset in %dh %02dm", hours, minutes));
         label.setForeground(duration.toMinutes() <= 60 ? Color.ORANGE : Color.LIGHT_GRAY);
     }
 
+    private static LocalDateTime nextReset(LocalDateTime now) {
+        LocalDateTime nextReset = now.toLocalDate().atTime(RESET_TIME);
+        return now.isBefore(nextReset) ? nextReset : nextReset.plusDays(1);
+    }
+
+    // ---------------- Scheduling ----------------
+
+    /**
+     * Display refresh driven by the shared scheduler: runs the action, then sleeps until the
+     * next deadline. While the window is minimized it stops rescheduling; restoring the
+     * window restarts every running ticker once.
+     */
+    private final class Ticker {
+        private final Runnable action;
+        private final java.util.function.LongSupplier nextDeadline;
+        private DeadlineScheduler.Task task;
+        private boolean running;
+
+        Ticker(Runnable action, java.util.function.LongSupplier nextDeadline) {
+            this.action = action;
+            this.nextDeadline = nextDeadline;
+            tickers.add(this);
+        }
+
+        void start() {
+            stop();
+            running = true;
+            tick();
+        }
+
+        void stop() {
+            running = false;
+            if (task != null) task.cancel();
+            task = null;
+        }
+
+        private void tick() {
+            action.run();
+            task = minimized ? null : scheduler.schedule(nextDeadline.getAsLong(), this::tick);
+        }
+    }
+
     // ---------------- Habit Section ----------------
     private JPanel createHabitSection() {
         JPanel habitSection = new JPanel(new BorderLayout());
@@ -171,48 +339,178 @@ public class MultiSectionApp extends JFrame {
 
         JLabel habit_desc = new JLabel("Your habits:");
         habit_desc.setForeground(Color.white);
-        habit_desc.setFont(defaultFont.deriveFont(Font.PLAIN, 14f));
+        fonts.bind(habit_desc, Font.PLAIN, 14f);
         habit_desc.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         JButton habit_add = new JButton("Add Habit");
-        habit_add.setFont(defaultFont.deriveFont(Font.BOLD, 24f));
+        fonts.bind(habit_add, Font.BOLD, 24f);
         habit_add.setForeground(Color.white);
         habit_add.setBackground(Color.black);
         habit_add.setAlignmentX(Component.LEFT_ALIGNMENT);
 
+        JPanel transferPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        transferPanel.setBackground(Color.black);
+        transferPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JButton importBtn = new JButton("Import");
+        JButton exportBtn = new JButton("Export");
+        for (JButton b : new JButton[]{importBtn, exportBtn}) {
+            b.setForeground(Color.white);
+            b.setBackground(Color.black);
+            fonts.bind(b, Font.BOLD, 12f);
+            transferPanel.add(b);
+        }
+
+        habitTable = createHabitTable();
+        javax.swing.table.TableRowSorter<HabitTableModel> sorter = new javax.swing.table.TableRowSorter<>(habitTableModel);
+        habitTable.setRowSorter(sorter);
+        JTextField filterField = createFilterField(sorter, habitTableModel::habitAt);
+        filterField.setAlignmentX(Component.LEFT_ALIGNMENT);
+
         topPanel.add(habit_desc);
         topPanel.add(Box.createVerticalStrut(4));
         topPanel.add(habit_add);
+        topPanel.add(transferPanel);
+        topPanel.add(Box.createVerticalStrut(4));
+        topPanel.add(filterField);
 
         habitSection.add(topPanel, BorderLayout.NORTH);
 
-        habitList = new JPanel();
-        habitList.setLayout(new BoxLayout(habitList, BoxLayout.Y_AXIS));
-        habitList.setBackground(Color.black);
-        habitSection.add(new JScrollPane(habitList), BorderLayout.CENTER);
+        JScrollPane habitScroll = new JScrollPane(habitTable);
+        habitScroll.getViewport().setBackground(Color.black);
+        habitSection.add(habitScroll, BorderLayout.CENTER);
 
         habit_add.addActionListener(e -> {
             String habitName = showCustomInputDialog(habitSection, "Add Habit", "");
             if (habitName != null && !habitName.trim().isEmpty()) {
-                addHabit(habitName.trim(), false);
-                saveHabits();
+                profile.add(habitName.trim());
             }
         });
+        importBtn.addActionListener(e -> importHabits(habitSection));
+        exportBtn.addActionListener(e -> exportHabits(habitSection));
 
         return habitSection;
     }
 
+    // ---------------- Import / Export ----------------
+    // Rows stream through a background worker and meet the store in batches on the EDT: one
+    // store event (one layout pass) and one journal flush per batch, and at most one batch
+    // in memory, however long the file.
+    private static final int TRANSFER_BATCH = 10_000;
+
+    private void importHabits(Component parent) {
+        JFileChooser chooser = new JFileChooser(".");
+        chooser.setDialogTitle("Import habits (CSV or JSON lines)");
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        ProgressMonitor monitor = new ProgressMonitor(parent, "Importing " + file.getName(), null, 0, 100);
+
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                int imported = 0;
+                java.util.List<HabitTransfer.Row> batch = new java.util.ArrayList<>(TRANSFER_BATCH);
+                try (HabitTransfer.Reader in = new HabitTransfer.Reader(file, HabitFileParser.STDERR)) {
+                    for (HabitTransfer.Row row; !isCancelled() && (row = in.next()) != null; ) {
+                        batch.add(row);
+                        if (batch.size() < TRANSFER_BATCH) continue;
+                        imported += commit(batch);
+                        setProgress(in.percentRead());
+                    }
+                    if (!isCancelled()) imported += commit(batch);
+                }
+                return imported;
+            }
+
+            private int commit(java.util.List<HabitTransfer.Row> batch) throws Exception {
+                SwingUtilities.invokeAndWait(() -> profile.importHabits(batch));
+                profile.flush();
+                int n = batch.size();
+                batch.clear();
+                return n;
+            }
+
+            @Override
+            @SuppressWarnings("CallToPrintStackTrace")
+            protected void done() {
+                monitor.close();
+                profile.compact(); // folds the import's journal records into one snapshot
+                if (isCancelled()) return;
+                try {
+                    get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) monitor.setProgress((Integer) e.getNewValue());
+            if (monitor.isCanceled()) worker.cancel(false);
+        });
+        worker.execute();
+    }
+
+    private void exportHabits(Component parent) {
+        JFileChooser chooser = new JFileChooser(".");
+        chooser.setDialogTitle("Export habits (.csv or .jsonl)");
+        chooser.setSelectedFile(new File("habits.csv"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        ProgressMonitor monitor = new ProgressMonitor(parent, "Exporting to " + file.getName(), null, 0, 100);
+        // ids rather than rows up front: habits deleted meanwhile are skipped, names are read batch by batch
+        int[] ids = new int[store.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = store.get(i).id();
+
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                try (HabitTransfer.Writer out = new HabitTransfer.Writer(file)) {
+                    for (int from = 0; from < ids.length && !isCancelled(); from += TRANSFER_BATCH) {
+                        int start = from;
+                        int end = Math.min(ids.length, from + TRANSFER_BATCH);
+                        java.util.List<HabitTransfer.Row> rows = new java.util.ArrayList<>(end - start);
+                        SwingUtilities.invokeAndWait(() -> {
+                            for (int i = start; i < end; i++) {
+                                HabitStore.Habit h = store.byId(ids[i]);
+                                if (h != null) rows.add(HabitTransfer.Row.of(store, h));
+                            }
+                        });
+                        for (HabitTransfer.Row row : rows) out.write(row);
+                        setProgress((int) (end * 100L / ids.length));
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            @SuppressWarnings("CallToPrintStackTrace")
+            protected void done() {
+                monitor.close();
+                if (isCancelled()) return;
+                try {
+                    get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) monitor.setProgress((Integer) e.getNewValue());
+            if (monitor.isCanceled()) worker.cancel(false);
+        });
+        worker.execute();
+    }
+
     private String showCustomInputDialog(Component parent, String title, String defaultText) {
         JPanel panel = new JPanel(new BorderLayout(5, 5));
         panel.setBackground(Color.black);
 
         JLabel label = new JLabel("Enter a habit:");
         label.setForeground(Color.white);
-        label.setFont(defaultFont.deriveFont(Font.PLAIN, 16f));
+        label.setFont(fonts.get(Font.PLAIN, 16f));
         panel.add(label, BorderLayout.NORTH);
 
         JTextField textField = new JTextField(defaultText != null ? defaultText : "");
-        textField.setFont(defaultFont.deriveFont(Font.PLAIN, 16f));
+        textField.setFont(fonts.get(Font.PLAIN, 16f));
         textField.setBackground(Color.darkGray);
         textField.setForeground(Color.white);
         textField.setCaretColor(Color.white);
@@ -222,291 +520,365 @@ public class MultiSectionApp extends JFrame {
         return result == JOptionPane.OK_OPTION ? textField.getText().trim() : null;
     }
 
+    private Recurrence showRecurrenceDialog(Component parent, Recurrence current) {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBackground(Color.black);
+
+        String[] kinds = {"Every day", "On weekdays", "Times per week", "Every N days"};
+        JComboBox<String> kind = new JComboBox<>(kinds);
+        kind.setFont(fonts.get(Font.PLAIN, 16f));
+        panel.add(kind, BorderLayout.NORTH);
+
+        JPanel days = new JPanel(new GridLayout(1, 7));
+        days.setBackground(Color.black);
+        JCheckBox[] dayBoxes = new JCheckBox[7];
+        for (int d = 0; d < 7; d++) {
+            dayBoxes[d] = new JCheckBox(java.time.DayOfWeek.of(d + 1).getDisplayName(java.time.format.TextStyle.SHORT, java.util.Locale.getDefault()));
+            dayBoxes[d].setBackground(Color.black);
+            dayBoxes[d].setForeground(Color.white);
+            dayBoxes[d].setSelected((current.weekdayMask() >>> d & 1) != 0);
+            days.add(dayBoxes[d]);
+        }
+        panel.add(days, BorderLayout.CENTER);
+
+        JSpinner count = new JSpinner(new SpinnerNumberModel(2, 1, 365, 1));
+        count.setFont(fonts.get(Font.PLAIN, 16f));
+        panel.add(count, BorderLayout.SOUTH);
+
+        Runnable follow = () -> {
+            int k = kind.getSelectedIndex();
+            for (JCheckBox box : dayBoxes) box.setEnabled(k == 1);
+            count.setEnabled(k >= 2);
+            SpinnerNumberModel m = (SpinnerNumberModel) count.getModel();
+            m.setMaximum(k == 2 ? 7 : 365);
+            if ((Integer) m.getValue() > (Integer) m.getMaximum()) m.setValue(m.getMaximum());
+        };
+        kind.setSelectedIndex(current.kind().ordinal());
+        if (current.kind() == Recurrence.Kind.TIMES_PER_WEEK || current.kind() == Recurrence.Kind.EVERY_DAYS) count.setValue(current.count());
+        kind.addActionListener(e -> follow.run());
+        follow.run();
+
+        int result = JOptionPane.showConfirmDialog(parent, panel, "Repeat", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return null;
+        int n = (Integer) count.getValue();
+        switch (kind.getSelectedIndex()) {
+            case 1: {
+                int mask = 0;
+                for (int d = 0; d < 7; d++) if (dayBoxes[d].isSelected()) mask |= 1 << d;
+                return mask == 0 ? null : Recurrence.weekdays(mask);
+            }
+            case 2: return Recurrence.timesPerWeek(n);
+            case 3:
+                if (current.kind() == Recurrence.Kind.EVERY_DAYS && current.count() == n) return current;
+                return Recurrence.everyDays(n, java.time.LocalDate.now().toEpochDay()); // counted from today
+            default: return Recurrence.DAILY;
+        }
+    }
+
     private int showCustomConfirmDialog(Component parent, String title, String message) {
         JPanel panel = new JPanel(new BorderLayout(5, 5));
         panel.setBackground(Color.black);
 
         JLabel label = new JLabel(message);
         label.setForeground(Color.white);
-        label.setFont(defaultFont.deriveFont(Font.PLAIN, 16f));
+        label.setFont(fonts.get(Font.PLAIN, 16f));
         panel.add(label, BorderLayout.CENTER);
 
         return JOptionPane.showConfirmDialog(parent, panel, title, JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
     }
 
-    // ---------------- Habit Add/Edit/Delete ----------------
-    private void addHabit(String habitName, boolean checked) {
-        JPanel habitRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        habitRow.setBackground(Color.black);
-
-        JCheckBox newHabit = new JCheckBox(habitName, checked);
-        newHabit.setFont(defaultFont.deriveFont(Font.PLAIN, 16f));
-        newHabit.setForeground(Color.white);
-        newHabit.setBackground(Color.black);
-
-        JButton editBtn = new JButton("Edit");
-        JButton delBtn = new JButton("Delete");
-
-        JButton[] btns = {editBtn, delBtn};
-        for (JButton b : btns) {
-            b.setForeground(Color.white);
-            b.setBackground(Color.darkGray);
-            b.setBorder(null);
-            b.setFont(defaultFont.deriveFont(Font.PLAIN, 12f));
-        }
-
-        editBtn.addActionListener(e -> {
-            String newName = showCustomInputDialog(habitList, "Edit Habit", newHabit.getText());
-            if (newName != null && !newName.trim().isEmpty()) {
-                newHabit.setText(newName.trim());
-                saveHabits();
+    // ---------------- Habit List ----------------
+    // One JTable over the store: a single renderer per column paints every row, so only
+    // the visible rows cost anything no matter how many habits there are.
+    private JTable createHabitTable() {
+        habitTableModel = new HabitTableModel(store);
+        JTable table = new JTable(habitTableModel) {
+            // built for the row under the mouse when asked, rather than on every paint
+            @Override
+            public String getToolTipText(java.awt.event.MouseEvent e) {
+                int row = rowAtPoint(e.getPoint());
+                int column = columnAtPoint(e.getPoint());
+                if (row < 0 || column != HabitTableModel.CHECKED && column != HabitTableModel.NAME) return null;
+                return habitTooltip(habitTableModel.habitAt(convertRowIndexToModel(row)));
+            }
+        };
+        table.setTableHeader(null);
+        table.setShowGrid(false);
+        table.setIntercellSpacing(new Dimension(0, 0));
+        table.setRowHeight(28);
+        table.setBackground(Color.black);
+        table.setForeground(Color.white);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        JCheckBox checkRenderer = new JCheckBox();
+        checkRenderer.setBackground(Color.black);
+        checkRenderer.setHorizontalAlignment(SwingConstants.CENTER);
+
+        // set up once: going through getTableCellRendererComponent would reset the font every paint
+        javax.swing.table.DefaultTableCellRenderer nameRenderer = new javax.swing.table.DefaultTableCellRenderer();
+        fonts.bind(nameRenderer, Font.PLAIN, 16f);
+
+        JButton buttonRenderer = new JButton();
+        buttonRenderer.setForeground(Color.white);
+        buttonRenderer.setBackground(Color.darkGray);
+        buttonRenderer.setBorder(BorderFactory.createLineBorder(Color.black, 3));
+        fonts.bind(buttonRenderer, Font.PLAIN, 12f);
+
+        table.setDefaultRenderer(Object.class, (t, value, selected, focused, row, column) -> {
+            switch (column) {
+                case HabitTableModel.CHECKED:
+                    checkRenderer.setSelected((Boolean) value);
+                    return checkRenderer;
+                case HabitTableModel.NAME:
+                    nameRenderer.setText((String) value);
+                    HabitStore.Habit h = habitTableModel.habitAt(t.convertRowIndexToModel(row));
+                    nameRenderer.setForeground(store.schedule().isDue(h) ? Color.white : Color.gray);
+                    nameRenderer.setBackground(selected ? Color.darkGray : Color.black);
+                    return nameRenderer;
+                default:
+                    buttonRenderer.setText((String) value);
+                    return buttonRenderer;
             }
         });
+        table.setDefaultRenderer(Boolean.class, table.getDefaultRenderer(Object.class));
+
+        javax.swing.table.TableColumnModel columns = table.getColumnModel();
+        int[] widths = {32, 0, 110, 60, 70};
+        for (int c = 0; c < widths.length; c++) {
+            if (widths[c] == 0) continue;
+            columns.getColumn(c).setMinWidth(widths[c]);
+            columns.getColumn(c).setMaxWidth(widths[c]);
+        }
 
-        delBtn.addActionListener(e -> {
-            int confirm = showCustomConfirmDialog(habitList, "Delete Habit", "Are you sure you want to delete \"" + newHabit.getText() + "\"?");
-            if (confirm == JOptionPane.OK_OPTION) {
-                habitList.remove(habitRow);
-                habitList.revalidate();
-                habitList.repaint();
-                saveHabits();
-
-                String key = (String) newHabit.getClientProperty("habitKey");
-                if (key != null) {
-                    streakMap.remove(key);
-                    lastCompletedMap.remove(key);
-                    saveStreaks();
-                    refreshStreakLabels();
+        // Row actions: the cells are only painted, so clicks are routed by column here.
+        table.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                int column = table.columnAtPoint(e.getPoint());
+                if (row < 0 || column < 0) return;
+                HabitStore.Habit habit = habitTableModel.habitAt(table.convertRowIndexToModel(row));
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    table.setRowSelectionInterval(row, row);
+                    showHabitMenu(table, habit, e.getX(), e.getY());
+                    return;
                 }
+                switch (column) {
+                    case HabitTableModel.CHECKED: toggleHabit(habit); break;
+                    case HabitTableModel.REPEAT: repeatHabit(habit); break;
+                    case HabitTableModel.EDIT: editHabit(habit); break;
+                    case HabitTableModel.DELETE: deleteHabit(habit); break;
+                    default: break;
+                }
+            }
+        });
+        table.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("SPACE"), "toggleHabit");
+        table.getActionMap().put("toggleHabit", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                int row = table.getSelectedRow();
+                if (row >= 0) toggleHabit(habitTableModel.habitAt(table.convertRowIndexToModel(row)));
+            }
+        });
+        table.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("DELETE"), "deleteHabit");
+        table.getActionMap().put("deleteHabit", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                int row = table.getSelectedRow();
+                if (row >= 0) deleteHabit(habitTableModel.habitAt(table.convertRowIndexToModel(row)));
             }
         });
+        return table;
+    }
 
-        newHabit.addActionListener(e -> saveHabits());
+    private String habitTooltip(HabitStore.Habit h) {
+        HabitReminders.Reminder reminder = reminders == null ? null : reminders.reminder(h);
+        return "Streak: " + h.streak() + " · " + h.recurrence().describe() + (store.schedule().isDue(h) ? "" : " · not due today")
+                + (reminder == null ? "" : " · reminder " + reminder.time);
+    }
 
-        habitRow.add(newHabit);
-        habitRow.add(editBtn);
-        habitRow.add(delBtn);
+    // ---------------- Habit Toggle/Edit/Delete ----------------
+    private void toggleHabit(HabitStore.Habit habit) {
+        profile.toggle(habit);
+    }
 
-        habitList.add(habitRow);
-        habitList.revalidate();
-        habitList.repaint();
+    private void editHabit(HabitStore.Habit habit) {
+        String newName = showCustomInputDialog(habitTable, "Edit Habit", habit.name());
+        if (newName != null && !newName.trim().isEmpty()) profile.rename(habit, newName.trim());
     }
 
-    @SuppressWarnings("CallToPrintStackTrace")
-    private void loadHabits() {
-        if (!habitFile.exists()) return;
-        try (BufferedReader reader = new BufferedReader(new FileReader(habitFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|", 2);
-                if (parts.length == 2) {
-                    boolean checked = parts[0].equals("1");
-                    String name = parts[1];
-                    addHabit(name, checked);
-                }
-            }
-        } catch (IOException e) { e.printStackTrace(); }
+    private void repeatHabit(HabitStore.Habit habit) {
+        Recurrence rule = showRecurrenceDialog(habitTable, habit.recurrence());
+        if (rule != null && !rule.equals(habit.recurrence())) profile.setRecurrence(habit, rule);
     }
 
-    @SuppressWarnings("CallToPrintStackTrace")
-    private void saveHabits() {
-        List<String> habits = new ArrayList<>();
-        for (Component row : habitList.getComponents()) {
-            if (row instanceof JPanel) {
-                for (Component c : ((JPanel) row).getComponents()) {
-                    if (c instanceof JCheckBox) {
-                        JCheckBox cb = (JCheckBox) c;
-                        String state = cb.isSelected() ? "1" : "0";
-                        habits.add(state + "|" + cb.getText());
-                    }
-                }
-            }
+    private void deleteHabit(HabitStore.Habit habit) {
+        int confirm = showCustomConfirmDialog(habitTable, "Delete Habit", "Are you sure you want to delete \"" + habit.name() + "\"?");
+        if (confirm == JOptionPane.OK_OPTION) profile.remove(habit);
+    }
+
+    // ---------------- Reminders ----------------
+    private void showHabitMenu(Component invoker, HabitStore.Habit habit, int x, int y) {
+        if (reminders == null) return;
+        JPopupMenu menu = new JPopupMenu();
+        JMenuItem set = new JMenuItem("Reminder…");
+        set.addActionListener(e -> editReminder(habit));
+        menu.add(set);
+        if (reminders.reminder(habit) != null) {
+            JMenuItem snooze = new JMenuItem("Snooze " + SNOOZE.toMinutes() + " min");
+            snooze.addActionListener(e -> reminders.snooze(habit, SNOOZE));
+            menu.add(snooze);
+            JMenuItem clear = new JMenuItem("No reminder");
+            clear.addActionListener(e -> reminders.clear(habit));
+            menu.add(clear);
         }
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(habitFile))) {
-            for (String h : habits) {
-                writer.write(h);
-                writer.newLine();
-            }
-        } catch (IOException e) { e.printStackTrace(); }
+        menu.show(invoker, x, y);
     }
 
-    // ---------------- Streak Logic ----------------
-    private void attachHabitListListener() {
-        habitList.addContainerListener(new java.awt.event.ContainerAdapter() {
-            @Override
-            public void componentAdded(java.awt.event.ContainerEvent e) {
-                Component child = e.getChild();
-                if (!(child instanceof JPanel)) return;
-                JPanel row = (JPanel) child;
-
-                final JCheckBox[] cbHolder = {null};
-                JButton delBtn = null;
-                for (Component c : row.getComponents()) {
-                    if (c instanceof JCheckBox) cbHolder[0] = (JCheckBox) c;
-                    if (c instanceof JButton && "Delete".equals(((JButton) c).getText())) delBtn = (JButton) c;
-                }
+    private void editReminder(HabitStore.Habit habit) {
+        HabitReminders.Reminder current = reminders.reminder(habit);
+        JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+        panel.setBackground(Color.black);
 
-                final JCheckBox cb = cbHolder[0];
-                if (cb != null) {
-                    String name = cb.getText();
-                    cb.putClientProperty("habitKey", name);
-
-                    int s = streakMap.getOrDefault(name, 0);
-                    cb.setToolTipText("Streak: " + s);
-
-                    for (java.awt.event.ActionListener al : cb.getActionListeners()) cb.removeActionListener(al);
-                    cb.addActionListener(ae -> checkAllAndUpdateStreaks());
-
-                    cb.addPropertyChangeListener("text", evt -> {
-                        String oldName = (String) evt.getOldValue();
-                        String newName = (String) evt.getNewValue();
-                        if (oldName == null || newName == null || oldName.equals(newName)) return;
-                        Integer v = streakMap.remove(oldName);
-                        LocalDate d = lastCompletedMap.remove(oldName);
-                        if (v != null) streakMap.put(newName, v);
-                        if (d != null) lastCompletedMap.put(newName, d);
-                        cb.putClientProperty("habitKey", newName);
-                        saveStreaks();
-                        refreshStreakLabels();
-                    });
-                }
+        JLabel timeLabel = new JLabel("Remind at (HH:mm):");
+        timeLabel.setForeground(Color.white);
+        timeLabel.setFont(fonts.get(Font.PLAIN, 16f));
+        JTextField timeField = new JTextField(current == null ? "09:00" : current.time.toString());
+        timeField.setFont(fonts.get(Font.PLAIN, 16f));
+        timeField.setBackground(Color.darkGray);
+        timeField.setForeground(Color.white);
+        timeField.setCaretColor(Color.white);
+
+        JLabel repeatLabel = new JLabel("Repeat every (min, 0 = once):");
+        repeatLabel.setForeground(Color.white);
+        repeatLabel.setFont(fonts.get(Font.PLAIN, 16f));
+        JSpinner repeat = new JSpinner(new SpinnerNumberModel(current == null ? 0 : current.repeatMinutes, 0, 720, 5));
+        repeat.setFont(fonts.get(Font.PLAIN, 16f));
+
+        panel.add(timeLabel);
+        panel.add(timeField);
+        panel.add(repeatLabel);
+        panel.add(repeat);
+
+        int result = JOptionPane.showConfirmDialog(habitTable, panel, "Reminder for " + habit.name(), JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+        String text = timeField.getText().trim();
+        if (text.isEmpty()) {
+            reminders.clear(habit);
+            return;
+        }
+        try {
+            reminders.set(habit, LocalTime.parse(text), (Integer) repeat.getValue());
+        } catch (java.time.format.DateTimeParseException e) {
+            showCustomConfirmDialog(habitTable, "Reminder", "Not a time: \"" + text + "\"");
+        }
+    }
 
-                if (delBtn != null) {
-                    final JCheckBox finalCb = cb;
-                    delBtn.addActionListener(ae -> {
-                        String key = finalCb == null ? null : (String) finalCb.getClientProperty("habitKey");
-                        if (key != null) {
-                            streakMap.remove(key);
-                            lastCompletedMap.remove(key);
-                            saveStreaks();
-                            refreshStreakLabels();
-                        }
+    /** One batch of reminders: a tray message while the window is in the background, and the in-app list. */
+    private void remind(java.util.List<HabitStore.Habit> habits) {
+        String names = habits.size() == 1 ? habits.get(0).name() : habits.size() + " habits waiting";
+        if (!isActive() && SystemTray.isSupported()) {
+            try {
+                if (trayIcon == null) {
+                    trayIcon = new TrayIcon(getIconImage(), "Habit Clock");
+                    trayIcon.setImageAutoSize(true);
+                    trayIcon.addActionListener(e -> {
+                        setState(NORMAL);
+                        toFront();
                     });
+                    SystemTray.getSystemTray().add(trayIcon);
                 }
+                trayIcon.displayMessage("Habit reminder", names, TrayIcon.MessageType.INFO);
+            } catch (AWTException e) {
+                System.err.println("No tray icon: " + e.getMessage());
             }
-        });
+        }
+        if (reminderDialog == null) createReminderDialog();
+        for (HabitStore.Habit h : habits) if (!reminded.contains(h)) reminded.addElement(h);
+        reminderDialog.setVisible(true);
     }
 
-    private void checkAllAndUpdateStreaks() {
-        if (habitList == null) return;
-        Component[] rows = habitList.getComponents();
-        if (rows.length == 0) return;
-
-        boolean allChecked = true;
-        List<JCheckBox> boxes = new ArrayList<>();
-        for (Component row : rows) {
-            if (!(row instanceof JPanel)) continue;
-            for (Component c : ((JPanel) row).getComponents()) {
-                if (c instanceof JCheckBox) {
-                    JCheckBox cb = (JCheckBox) c;
-                    boxes.add(cb);
-                    if (!cb.isSelected()) { allChecked = false; break; }
-                }
+    private void createReminderDialog() {
+        reminded = new DefaultListModel<>();
+        JList<HabitStore.Habit> list = new JList<>(reminded);
+        list.setBackground(Color.black);
+        list.setForeground(Color.white);
+        list.setFont(fonts.get(Font.PLAIN, 16f));
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean selected, boolean focused) {
+                return super.getListCellRendererComponent(l, ((HabitStore.Habit) value).name(), index, selected, focused);
             }
-            if (!allChecked) break;
-        }
-
-        LocalDate today = LocalDate.now();
-        if (!allChecked) return;
+        });
 
-        boolean alreadyCountedToday = true;
-        for (JCheckBox cb : boxes) {
-            String key = (String) cb.getClientProperty("habitKey");
-            LocalDate last = lastCompletedMap.get(key);
-            if (last == null || !last.equals(today)) { alreadyCountedToday = false; break; }
-        }
-        if (alreadyCountedToday) return;
-
-        for (JCheckBox cb : boxes) {
-            String key = (String) cb.getClientProperty("habitKey");
-            int newStreak = streakMap.getOrDefault(key, 0) + 1;
-            streakMap.put(key, newStreak);
-            lastCompletedMap.put(key, today);
-            cb.setToolTipText("Streak: " + newStreak);
-        }
-        saveStreaks();
-        refreshStreakLabels();
-    }
-
-    private void loadStreaks() {
-        if (!streakFile.exists()) return;
-        try (BufferedReader r = new BufferedReader(new FileReader(streakFile))) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                String[] parts = line.split("\\|", 3);
-                if (parts.length >= 2) {
-                    String name = parts[0];
-                    int streak = 0;
-                    try { streak = Integer.parseInt(parts[1]); } catch (NumberFormatException ignored) {}
-                    streakMap.put(name, streak);
-                    if (parts.length == 3 && parts[2] != null && !parts[2].isEmpty()) {
-                        try { LocalDate d = LocalDate.parse(parts[2]); lastCompletedMap.put(name, d); } catch (Exception ignored) {}
-                    }
-                }
+        JButton done = new JButton("Done");
+        JButton snooze = new JButton("Snooze " + SNOOZE.toMinutes() + " min");
+        JButton dismiss = new JButton("Dismiss");
+        // acts on the selected habits, or on all of them when none is selected
+        java.util.function.Supplier<java.util.List<HabitStore.Habit>> chosen = () -> {
+            java.util.List<HabitStore.Habit> picked = list.getSelectedValuesList();
+            return picked.isEmpty() ? java.util.Collections.list(reminded.elements()) : picked;
+        };
+        done.addActionListener(e -> {
+            for (HabitStore.Habit h : chosen.get()) {
+                if (store.byId(h.id()) == h && !h.checked()) profile.toggle(h);
+                reminded.removeElement(h);
             }
-        } catch (IOException ex) { ex.printStackTrace(); }
-    }
-
-    private void saveStreaks() {
-        try (BufferedWriter w = new BufferedWriter(new FileWriter(streakFile))) {
-            for (java.util.Map.Entry<String, Integer> e : streakMap.entrySet()) {
-                String name = e.getKey();
-                String streak = String.valueOf(e.getValue());
-                LocalDate d = lastCompletedMap.get(name);
-                String dateStr = d == null ? "" : d.toString();
-                w.write(name + "|" + streak + "|" + dateStr);
-                w.newLine();
+            if (reminded.isEmpty()) reminderDialog.setVisible(false);
+        });
+        snooze.addActionListener(e -> {
+            for (HabitStore.Habit h : chosen.get()) {
+                if (store.byId(h.id()) == h) reminders.snooze(h, SNOOZE);
+                reminded.removeElement(h);
             }
-        } catch (IOException ex) { ex.printStackTrace(); }
-    }
-
-    private void refreshStreakLabels() {
-        if (habitList == null) return;
-        for (Component rowComp : habitList.getComponents()) {
-            if (!(rowComp instanceof JPanel)) continue;
-            JPanel row = (JPanel) rowComp;
-
-            JCheckBox cb = null;
-            for (Component c : row.getComponents()) if (c instanceof JCheckBox) cb = (JCheckBox) c;
-            if (cb == null) continue;
-
-            String key = (String) cb.getClientProperty("habitKey");
-            int streak = streakMap.getOrDefault(key, 0);
+            if (reminded.isEmpty()) reminderDialog.setVisible(false);
+        });
+        dismiss.addActionListener(e -> {
+            reminded.clear();
+            reminderDialog.setVisible(false);
+        });
 
-            cb.setToolTipText("Streak: " + streak);
+        JPanel buttons = new JPanel();
+        buttons.setBackground(Color.black);
+        for (JButton b : new JButton[]{done, snooze, dismiss}) {
+            b.setForeground(Color.white);
+            b.setBackground(Color.darkGray);
+            buttons.add(b);
         }
-    }
 
-    private void updateAllTooltips() { refreshStreakLabels(); }
-
-    private void initStreakDisplay() { refreshStreakLabels(); }
+        reminderDialog = new JDialog(this, "Habit reminder", false);
+        reminderDialog.setLayout(new BorderLayout());
+        reminderDialog.add(new JScrollPane(list), BorderLayout.CENTER);
+        reminderDialog.add(buttons, BorderLayout.SOUTH);
+        reminderDialog.setSize(320, 240);
+        reminderDialog.setLocationRelativeTo(this);
+        reminderDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) { reminded.clear(); }
+        });
+    }
 
-    private void startDailyResetTimer() {
-        Timer dailyReset = new Timer(60 * 1000, e -> {
-            LocalDate today = LocalDate.now();
-            if (!today.equals(lastCheckedDate)) {
-                lastCheckedDate = today;
-                for (Component rowComp : habitList.getComponents()) {
-                    if (!(rowComp instanceof JPanel)) continue;
-                    JPanel row = (JPanel) rowComp;
+    // ---------------- Day Boundary ----------------
 
-                    for (Component c : row.getComponents()) {
-                        if (c instanceof JCheckBox) ((JCheckBox) c).setSelected(false);
-                    }
-                }
-                saveHabits();
-            }
+    /** Sleeps until the next reset (or at most MAX_DAY_CHECK_INTERVAL) instead of polling. */
+    private void scheduleDayBoundary() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime wake = nextReset(now);
+        if (wake.isAfter(now.plus(MAX_DAY_CHECK_INTERVAL))) wake = now.plus(MAX_DAY_CHECK_INTERVAL);
+        scheduler.scheduleAt(wake, () -> {
+            profile.checkDayBoundary();
+            scheduleDayBoundary();
         });
-        dailyReset.start();
     }
 
     // ---------------- Pomodoro Section ----------------
-    private JPanel createPomodoroSection(Font font) {
+    private JPanel createPomodoroSection() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(Color.black);
 
         JLabel timerLabel = new JLabel("25:00", SwingConstants.CENTER);
-        timerLabel.setFont(font.deriveFont(Font.BOLD, 48f));
+        fonts.bind(timerLabel, Font.BOLD, 48f);
         timerLabel.setForeground(Color.white);
         panel.add(timerLabel, BorderLayout.CENTER);
 
@@ -532,6 +904,8 @@ public class MultiSectionApp extends JFrame {
         JLabel breakLabel = new JLabel("Break (min):");
         workLabel.setForeground(Color.white);
         breakLabel.setForeground(Color.white);
+        fonts.bind(workLabel, Font.BOLD, 14f);
+        fonts.bind(breakLabel, Font.BOLD, 14f);
 
         controlsPanel.add(startBtn);
         controlsPanel.add(pauseBtn);
@@ -546,80 +920,97 @@ public class MultiSectionApp extends JFrame {
             cb.setForeground(Color.white);
             cb.setBackground(Color.black);
             cb.setBorder(null);
+            fonts.bind(cb, Font.BOLD, 12f);
         }
 
-        final Timer[] pomodoroTimer = {null};
-        final int[] remainingSeconds = {(int) workDropdown.getSelectedItem() * 60};
-        final boolean[] isPaused = {false};
-        final boolean[] onBreak = {false};
+        // The engine runs the cycle and reports each session to the log; the label is derived
+        // from its monotonic deadlines, never counted down.
+        PomodoroEngine engine = new PomodoroEngine(minutesToNanos(workDropdown), minutesToNanos(breakDropdown));
+        pomodoro = engine;
+        PomodoroLog log = pomodoroLog();
+        final DeadlineScheduler.Task[] phaseTask = {null};
 
         Runnable updateTimerLabel = () -> {
-            int mins = remainingSeconds[0] / 60;
-            int secs = remainingSeconds[0] % 60;
-            timerLabel.setText(String.format("%02d:%02d", mins, secs));
+            long total = (engine.remaining(System.nanoTime()) + 999_999_999L) / 1_000_000_000L;
+            timerLabel.setText(String.format("%02d:%02d", total / 60, total % 60));
         };
+        // ticks when the displayed second changes, i.e. on whole seconds before the phase end
+        Ticker display = new Ticker(updateTimerLabel, () -> {
+            long now = System.nanoTime();
+            long rest = engine.remaining(now) % 1_000_000_000L;
+            return now + (rest == 0 ? 1_000_000_000L : rest);
+        });
 
-        workDropdown.addActionListener(e -> {
-            if (!onBreak[0]) {
-                remainingSeconds[0] = (int) workDropdown.getSelectedItem() * 60;
+        // re-arms the phase end after anything that may have moved it
+        Runnable[] followEngine = {null};
+        followEngine[0] = () -> {
+            if (phaseTask[0] != null) phaseTask[0].cancel();
+            phaseTask[0] = null;
+            if (engine.running()) {
+                phaseTask[0] = scheduler.schedule(engine.phaseEnd(), () -> {
+                    engine.advance(System.nanoTime());
+                    followEngine[0].run();
+                });
+                display.start();
+            } else {
+                display.stop();
                 updateTimerLabel.run();
             }
+        };
+
+        engine.addListener(new PomodoroEngine.Listener() {
+            @Override
+            public void sessionEnded(PomodoroEngine.Session session) { log.record(session); }
+
+            @Override
+            public void phaseChanged(PomodoroEngine.Phase phase) {
+                Toolkit.getDefaultToolkit().beep();
+                timerLabel.setForeground(phase == PomodoroEngine.Phase.BREAK ? Color.GREEN : Color.WHITE);
+            }
+        });
+
+        workDropdown.addActionListener(e -> {
+            engine.setWorkLength(minutesToNanos(workDropdown), System.nanoTime());
+            followEngine[0].run();
         });
 
         breakDropdown.addActionListener(e -> {
-            if (onBreak[0]) {
-                remainingSeconds[0] = (int) breakDropdown.getSelectedItem() * 60;
-                updateTimerLabel.run();
-            }
+            engine.setBreakLength(minutesToNanos(breakDropdown), System.nanoTime());
+            followEngine[0].run();
         });
 
         startBtn.addActionListener(e -> {
-            if (pomodoroTimer[0] != null && pomodoroTimer[0].isRunning()) return;
-            isPaused[0] = false;
-            pomodoroTimer[0] = new Timer(1000, evt -> {
-                if (!isPaused[0] && remainingSeconds[0] > 0) {
-                    remainingSeconds[0]--;
-                    updateTimerLabel.run();
-                }
-                if (remainingSeconds[0] == 0) {
-                    Toolkit.getDefaultToolkit().beep();
-                    if (!onBreak[0]) {
-                        onBreak[0] = true;
-                        remainingSeconds[0] = (int) breakDropdown.getSelectedItem() * 60;
-                        timerLabel.setForeground(Color.GREEN);
-                    } else {
-                        onBreak[0] = false;
-                        remainingSeconds[0] = (int) workDropdown.getSelectedItem() * 60;
-                        timerLabel.setForeground(Color.WHITE);
-                    }
-                    updateTimerLabel.run();
-                }
-            });
-            pomodoroTimer[0].start();
+            if (engine.running()) return;
+            engine.start(System.nanoTime());
+            followEngine[0].run();
         });
 
-        pauseBtn.addActionListener(e -> isPaused[0] = true);
+        pauseBtn.addActionListener(e -> {
+            engine.pause(System.nanoTime());
+            followEngine[0].run();
+        });
 
         stopBtn.addActionListener(e -> {
-            if (pomodoroTimer[0] != null) pomodoroTimer[0].stop();
-            isPaused[0] = false;
-            onBreak[0] = false;
-            remainingSeconds[0] = (int) workDropdown.getSelectedItem() * 60;
+            engine.stop(System.nanoTime());
             timerLabel.setForeground(Color.WHITE);
-            updateTimerLabel.run();
+            followEngine[0].run();
         });
 
         panel.add(controlsPanel, BorderLayout.SOUTH);
         return panel;
     }
 
+    private static long minutesToNanos(JComboBox<Integer> minutes) {
+        return (Integer) minutes.getSelectedItem() * 60_000_000_000L;
+    }
+
     // ---------------- About Section ----------------
     private JPanel createAboutSection() {
         JPanel panel = new JPanel();
         panel.setBackground(Color.black);
         JLabel about = new JLabel("developed at PU", SwingConstants.CENTER);
         about.setForeground(Color.white);
-        about.setFont(defaultFont.deriveFont(Font.PLAIN, 18f));
+        fonts.bind(about, Font.PLAIN, 18f);
         panel.add(about);
         return panel;
     }
@@ -629,29 +1020,130 @@ public class MultiSectionApp extends JFrame {
         statisticsPanel = new JPanel(new BorderLayout());
         statisticsPanel.setBackground(Color.black);
 
-        statsTable = new JTable();
+        statsTable = new JTable(new StatisticsTableModel(store));
         statsTable.setBackground(Color.darkGray);
         statsTable.setForeground(Color.white);
-        statsTable.setFont(defaultFont.deriveFont(Font.PLAIN, 14f));
+        fonts.bind(statsTable, Font.PLAIN, 14f);
         statsTable.setFillsViewportHeight(true);
 
-        statisticsPanel.add(new JScrollPane(statsTable), BorderLayout.CENTER);
+        // Sorted incrementally as rows change; click a header to sort by that column.
+        StatisticsTableModel model = (StatisticsTableModel) statsTable.getModel();
+        javax.swing.table.TableRowSorter<StatisticsTableModel> sorter = new javax.swing.table.TableRowSorter<>(model);
+        sorter.setSortsOnUpdates(true);
+        statsTable.setRowSorter(sorter);
+
+        statsTable.setDefaultRenderer(java.time.DayOfWeek.class, new javax.swing.table.DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : ((java.time.DayOfWeek) value).getDisplayName(java.time.format.TextStyle.SHORT, java.util.Locale.getDefault()));
+            }
+        });
+        statsTable.setDefaultRenderer(Float.class, new javax.swing.table.DefaultTableCellRenderer() {
+            {
+                setHorizontalAlignment(SwingConstants.RIGHT);
+            }
+
+            @Override
+            protected void setValue(Object value) { setText(value == null ? "" : String.format("%.2f", (Float) value)); }
+        });
+        // "Like selected" measures every habit against the selected one
+        statsTable.getSelectionModel().addListSelectionListener(e -> {
+            if (e.getValueIsAdjusting()) return;
+            int row = statsTable.getSelectedRow();
+            model.compareWith(row < 0 ? null : model.habitAt(statsTable.convertRowIndexToModel(row)));
+        });
+
+        statisticsPanel.add(createFilterField(sorter, model::habitAt), BorderLayout.NORTH);
+        // Same rows as the table: the heatmap follows its sort order and filter.
+        HabitHeatmap heatmap = new HabitHeatmap(store, sorter, model::habitAt);
+        fonts.bind(heatmap, Font.PLAIN, 12f);
+        JScrollPane heatmapScroll = new JScrollPane(heatmap);
+        heatmapScroll.getViewport().setBackground(Color.black);
+        JTabbedPane views = new JTabbedPane();
+        views.addTab("Table", new JScrollPane(statsTable));
+        views.addTab("Heatmap", heatmapScroll);
+        statisticsPanel.add(views, BorderLayout.CENTER);
+
+        // Long-term focus from the Pomodoro log's running totals; refreshed per session and on
+        // each visit, so "today" follows the date.
+        JLabel focusLabel = new JLabel(" ", SwingConstants.CENTER);
+        focusLabel.setForeground(Color.white);
+        fonts.bind(focusLabel, Font.PLAIN, 14f);
+        PomodoroLog log = pomodoroLog();
+        Runnable showFocus = () -> focusLabel.setText(focusSummary(log));
+        log.addListener(showFocus);
+        statisticsPanel.addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentShown(java.awt.event.ComponentEvent e) { showFocus.run(); }
+        });
+        showFocus.run();
+        statisticsPanel.add(focusLabel, BorderLayout.SOUTH);
         return statisticsPanel;
     }
 
-    private void updateStatisticsTable() {
-        String[] cols = {"Habit", "Streak"};
-        Object[][] data = new Object[streakMap.size()][2];
-        int i = 0;
-        for (String k : streakMap.keySet()) {
-            data[i][0] = k;
-            data[i][1] = streakMap.get(k);
-            i++;
+    private static String focusSummary(PomodoroLog log) {
+        if (!log.loaded()) return "Focus: loading...";
+        java.time.LocalDate today = java.time.LocalDate.now();
+        return "Focus today " + hoursMinutes(log.focusMillis(today))
+                + " | this week " + hoursMinutes(log.weekFocusMillis(today))
+                + " | 30 days " + hoursMinutes(log.focusMillis(today.minusDays(29), today))
+                + " | all time " + hoursMinutes(log.totalFocusMillis());
+    }
+
+    private static String hoursMinutes(long millis) {
+        long minutes = millis / 60_000L;
+        return String.format("%d:%02d h", minutes / 60, minutes % 60);
+    }
+
+    /**
+     * Filter box over a habit table: each keystroke narrows the sorter to the habits whose name
+     * contains the text, looked up in the store's name index. Rows are only hidden, never rebuilt.
+     * The index is built on the first keystroke, so startup and the first paint never pay for it.
+     */
+    private JTextField createFilterField(javax.swing.table.TableRowSorter<?> sorter, java.util.function.IntFunction<HabitStore.Habit> habitAt) {
+        class NameFilter extends RowFilter<Object, Integer> {
+            private HabitNameIndex.Filter filter;
+
+            @Override
+            public boolean include(Entry<?, ? extends Integer> entry) { return filter.includes(habitAt.apply(entry.getIdentifier()).id()); }
         }
-        statsTable.setModel(new javax.swing.table.DefaultTableModel(data, cols));
+        NameFilter rows = new NameFilter();
+
+        JTextField filterField = new JTextField();
+        filterField.setToolTipText("Filter habits by name");
+        fonts.bind(filterField, Font.PLAIN, 14f);
+        filterField.setBackground(Color.darkGray);
+        filterField.setForeground(Color.white);
+        filterField.setCaretColor(Color.white);
+        Runnable refilter = () -> {
+            if (rows.filter == null) {
+                if (filterField.getText().isBlank()) return;
+                rows.filter = store.nameIndex().newFilter();
+            }
+            rows.filter.setText(filterField.getText());
+            sorter.setRowFilter(rows.filter.active() ? rows : null);
+        };
+        filterField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { refilter.run(); }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { refilter.run(); }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { }
+        });
+        return filterField;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        launchNanos = System.nanoTime();
+        if (args.length > 0 && args[0].equals("--server")) {
+            HabitServer.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        HabitMetrics.register();
+        EdtWatchdog.startIfEnabled();
         SwingUtilities.invokeLater(MultiSectionApp::new);
     }
 }
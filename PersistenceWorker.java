@@ -0,0 +1,365 @@
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Background thread that owns all habit file I/O. The EDT renders journal records and
+ * snapshots from the current state and hands them over without touching the disk; the
+ * worker gathers everything submitted within one commit window and writes it with a
+ * single flush. flush() blocks until everything submitted so far is on disk; close()
+ * also releases the journal and ends the thread.
+ *
+ * A batch that fails to write stays queued, ahead of anything newer, and is tried again
+ * every RETRY_MILLIS; written() only counts what reached the disk, and a flush() waiting on
+ * it throws instead of reporting success.
+ *
+ * With Sharing, each batch is written under a lock other processes honour too, right after
+ * picking up whatever they wrote since the previous batch. Journal records name habits by
+ * row, so what others wrote and what is still queued here are rebased past each other
+ * (JournalRebase): the queue goes on disk after their records, and the owner applies theirs
+ * through takeForeign() after its own. Records submitted before the owner has done so are
+ * rebased the same way on the way in. Snapshots rendered while others' records were pending
+ * would drop them and are skipped instead.
+ */
+public class PersistenceWorker {
+
+    /** Stages the snapshot files (HabitJournal.stage) from data captured on the EDT; runs on the worker thread. */
+    public interface Snapshot {
+        void write() throws IOException;
+    }
+
+    /** Coordination with other processes writing the same directory. */
+    public interface Sharing {
+        /** Exclusive across processes; held for one batch. */
+        FileLock lock() throws IOException;
+
+        /** Reads what other processes wrote since the last batch, with the lock held; null if nothing. */
+        Foreign catchUp() throws IOException;
+
+        /** Others' changes are waiting in takeForeign(); have the owner apply them. */
+        void arrived();
+
+        /** This worker's own snapshot is in place, with the lock still held. */
+        void compacted() throws IOException;
+
+        /** A snapshot was dropped because the journal holds records it does not cover. */
+        void compactionSkipped();
+    }
+
+    /** What other processes wrote: journal records, on top of snapshot if they compacted meanwhile. */
+    public static final class Foreign {
+        public final HabitStore snapshot; // null unless the snapshot files were replaced
+        public final List<String> records;
+
+        public Foreign(HabitStore snapshot, List<String> records) {
+            this.snapshot = snapshot;
+            this.records = records;
+        }
+    }
+
+    private static final long RETRY_MILLIS = 1000;
+    private static final Object DROPPED = new Object(); // a record rebased away
+    private static final Object STALE = new Object();   // a snapshot missing others' records
+
+    private final HabitJournal journal;
+    private final long windowMillis;
+    private final Sharing sharing;
+    private final Thread thread;
+
+    private final Object lock = new Object();
+    private List<Object> queue = new ArrayList<>(); // journal records (String) and Snapshots, in order
+    private long submitted;
+    private long written;
+    private boolean urgent;
+    private boolean syncRequested;
+    private boolean closed;
+    private long failures;          // failed write attempts so far
+    private IOException lastFailure;
+
+    // with Sharing: others' records the owner has not applied yet, rebased past everything
+    // submitted since; rows is the habit count they apply to, once the owner has merged
+    // foreignSnapshot if there is one
+    private List<String> foreign = new ArrayList<>();
+    private HabitStore foreignSnapshot;
+    private int rows;
+
+    public PersistenceWorker(HabitJournal journal, long windowMillis) {
+        this(journal, windowMillis, null, 0);
+    }
+
+    /** rows is the number of habits the owner has loaded. */
+    public PersistenceWorker(HabitJournal journal, long windowMillis, Sharing sharing, int rows) {
+        this.journal = journal;
+        this.windowMillis = windowMillis;
+        this.sharing = sharing;
+        this.rows = rows;
+
+        thread = new Thread(this::run, "habit-persistence");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Returns the record's sequence number; it is on disk once written() reaches it. */
+    public long submit(String record) { return enqueue(record); }
+
+    /** Queues a full snapshot; the journal is folded into it once earlier records are written. */
+    public void submitSnapshot(Snapshot snapshot) { enqueue(snapshot); }
+
+    private long enqueue(Object item) {
+        synchronized (lock) {
+            if (sharing != null) item = item instanceof String ? rebaseSubmitted((String) item) : foreignPending() ? STALE : item;
+            queue.add(item);
+            submitted++;
+            if (queue.size() == 1) lock.notifyAll();
+            return submitted;
+        }
+    }
+
+    /** A record rendered by the owner, which has not applied foreign yet. */
+    private Object rebaseSubmitted(String record) {
+        if (foreignSnapshot != null) {
+            // the owner's rows are replaced by the snapshot, then foreign and this record go on top
+            foreign.add(record);
+            return record;
+        }
+        int before = rows;
+        rows += JournalRebase.rowChange(record);
+        if (foreign.isEmpty()) return record;
+        JournalRebase.Result r = JournalRebase.rebase(before, List.of(record), foreign);
+        foreign = r.theirs;
+        return r.ours[0] == null ? DROPPED : r.ours[0];
+    }
+
+    private boolean foreignPending() { return foreignSnapshot != null || !foreign.isEmpty(); }
+
+    /**
+     * On the owner: what other processes wrote, rebased past everything submitted so far, for
+     * the owner to apply now; null if nothing is waiting.
+     */
+    public Foreign takeForeign() {
+        synchronized (lock) {
+            if (!foreignPending()) return null;
+            Foreign taken = new Foreign(foreignSnapshot, foreign);
+            if (foreignSnapshot != null) rows = foreignSnapshot.size();
+            rows += JournalRebase.rowChange(foreign);
+            foreign = new ArrayList<>();
+            foreignSnapshot = null;
+            return taken;
+        }
+    }
+
+    /** Number of items written so far. */
+    public long written() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    /** Has the worker look for changes from other processes soon, even with nothing queued. */
+    public void sync() {
+        synchronized (lock) {
+            syncRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Skips the commit window and waits until everything submitted before this call is written.
+     * Throws if an attempt to write it fails; the changes stay queued and are retried.
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = submitted;
+            if (written >= target) return;
+            long failuresBefore = failures;
+            urgent = true;
+            lock.notifyAll();
+            boolean interrupted = false;
+            try {
+                while (written < target) {
+                    if (failures != failuresBefore) throw new IOException("habit changes not on disk yet, retrying", lastFailure);
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes everything submitted so far and stops; nothing may be submitted afterwards.
+     * Throws if that failed: the thread makes one more attempt and then gives up on them.
+     */
+    public void close() throws IOException {
+        IOException failure = null;
+        try {
+            flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (written < submitted) throw failure != null ? failure : new IOException("habit changes lost on close", lastFailure);
+        }
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void run() {
+        while (true) {
+            List<Object> batch;
+            synchronized (lock) {
+                try {
+                    while (queue.isEmpty() && !syncRequested) {
+                        if (closed) {
+                            try { journal.close(); } catch (IOException e) { e.printStackTrace(); }
+                            return;
+                        }
+                        lock.wait();
+                    }
+                    // group commit: let the rest of a burst (rapid toggles, bulk renames) join this write
+                    long deadline = System.nanoTime() + windowMillis * 1_000_000L;
+                    long remaining;
+                    while (!urgent && (remaining = deadline - System.nanoTime()) > 0) {
+                        lock.wait(Math.max(1, remaining / 1_000_000L));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+                urgent = false;
+                syncRequested = false;
+            }
+
+            int size = batch.size();
+            IOException failure = null;
+            try {
+                write(batch);
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            synchronized (lock) {
+                written += size - batch.size();
+                if (failure != null) {
+                    failures++;
+                    lastFailure = failure;
+                    batch.addAll(queue); // the rest goes first next time
+                    queue = batch;
+                }
+                lock.notifyAll();
+                if (failure != null) {
+                    failure.printStackTrace();
+                    if (closed) {
+                        try { journal.close(); } catch (IOException e) { e.printStackTrace(); }
+                        return;
+                    }
+                    try {
+                        lock.wait(RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Writes the batch, removing items from it as they reach the disk. */
+    private void write(List<Object> batch) throws IOException {
+        if (sharing == null) {
+            append(batch);
+            return;
+        }
+        FileLock lock = sharing.lock();
+        try {
+            Foreign changes = sharing.catchUp();
+            if (changes != null) {
+                rebaseQueued(batch, changes);
+                sharing.arrived();
+            }
+            append(batch);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /** Others' changes just read from disk: batch and queue go on top of them. */
+    private void rebaseQueued(List<Object> batch, Foreign changes) {
+        synchronized (lock) {
+            List<String> ours = new ArrayList<>();
+            for (Object item : batch) if (item instanceof String) ours.add((String) item);
+            for (Object item : queue) if (item instanceof String) ours.add((String) item);
+            if (changes.snapshot != null) {
+                // compacted elsewhere: the rows ours were rendered against are gone, so the
+                // owner replays them as they are on top of the snapshot and the new journal
+                foreignSnapshot = changes.snapshot;
+                rows = changes.snapshot.size();
+                foreign = new ArrayList<>(changes.records);
+                foreign.addAll(ours);
+            } else {
+                int disk = rows + JournalRebase.rowChange(foreign) - JournalRebase.rowChange(ours);
+                JournalRebase.Result r = JournalRebase.rebase(disk, ours, changes.records);
+                foreign.addAll(r.theirs);
+                int next = replaceRecords(batch, r.ours, 0);
+                replaceRecords(queue, r.ours, next);
+            }
+            for (List<Object> items : List.of(batch, queue)) {
+                for (int i = 0; i < items.size(); i++) if (items.get(i) instanceof Snapshot) items.set(i, STALE);
+            }
+        }
+    }
+
+    private static int replaceRecords(List<Object> items, String[] records, int next) {
+        for (int i = 0; i < items.size(); i++) {
+            if (!(items.get(i) instanceof String)) continue;
+            String record = records[next++];
+            items.set(i, record == null ? DROPPED : record);
+        }
+        return next;
+    }
+
+    private void append(List<Object> batch) throws IOException {
+        List<String> records = new ArrayList<>();
+        int done = 0; // items before this are on disk
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Object item = batch.get(i);
+                if (item instanceof String) {
+                    records.add((String) item);
+                    continue;
+                }
+                if (item == DROPPED) continue;
+                journal.append(records);
+                records.clear();
+                done = i;
+                if (item == STALE) sharing.compactionSkipped();
+                else compact((Snapshot) item);
+                done = i + 1;
+            }
+            journal.append(records);
+            done = batch.size();
+        } finally {
+            batch.subList(0, done).clear();
+        }
+    }
+
+    private void compact(Snapshot snapshot) throws IOException {
+        journal.rotate();
+        snapshot.write(); // staged; swapped in by commit() all together
+        journal.commit();
+        if (sharing != null) sharing.compacted();
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Work/break cycle without any UI. Time is passed in as System.nanoTime() values, phase ends
+ * are monotonic deadlines chained from one another, and every work or break session that
+ * ends (run out, stopped, or restarted with a new length) is handed to the listeners with
+ * its wall-clock start and end, planned length, time actually counted down and time paused.
+ *
+ * Not thread-safe: the app drives it from the EDT.
+ */
+public class PomodoroEngine {
+
+    public enum Phase { WORK, BREAK }
+
+    /** One finished work or break session. Times are epoch milliseconds / milliseconds. */
+    public static final class Session {
+        public final Phase phase;
+        public final long startMillis;
+        public final long endMillis;
+        public final long plannedMillis;
+        public final long pausedMillis;
+        /** Ran out on its own rather than being stopped or restarted. */
+        public final boolean completed;
+
+        public Session(Phase phase, long startMillis, long endMillis, long plannedMillis, long pausedMillis, boolean completed) {
+            this.phase = phase;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.plannedMillis = plannedMillis;
+            this.pausedMillis = pausedMillis;
+            this.completed = completed;
+        }
+
+        /** Time actually counted down: wall time minus pauses. */
+        public long activeMillis() { return Math.max(0, endMillis - startMillis - pausedMillis); }
+    }
+
+    public interface Listener {
+        void sessionEnded(Session session);
+        /** A phase ran out and the next one started. */
+        void phaseChanged(Phase phase);
+    }
+
+    private final List<Listener> listeners = new ArrayList<>();
+    // maps nanoTime onto the wall clock for the log
+    private final long wallAnchorMillis = System.currentTimeMillis();
+    private final long nanoAnchor = System.nanoTime();
+
+    private long workNanos;
+    private long breakNanos;
+    private Phase phase = Phase.WORK;
+    private boolean running;
+    private boolean open;         // a session has started and not ended (running or paused)
+    private long phaseEnd;        // while running
+    private long remaining;       // while not running
+    private long sessionStart;
+    private long sessionPlanned;
+    private long pausedSince;
+    private long pausedNanos;
+
+    public PomodoroEngine(long workNanos, long breakNanos) {
+        this.workNanos = workNanos;
+        this.breakNanos = breakNanos;
+        this.remaining = workNanos;
+    }
+
+    public void addListener(Listener l) { listeners.add(l); }
+
+    // ---------------- State ----------------
+    public Phase phase() { return phase; }
+
+    public boolean running() { return running; }
+
+    /** Deadline of the current phase; only meaningful while running. */
+    public long phaseEnd() { return phaseEnd; }
+
+    public long remaining(long now) { return running ? Math.max(0, phaseEnd - now) : remaining; }
+
+    // ---------------- Controls ----------------
+    public void start(long now) {
+        if (running) return;
+        if (open) {
+            pausedNanos += now - pausedSince;
+        } else {
+            openSession(now, remaining);
+        }
+        running = true;
+        phaseEnd = now + remaining;
+    }
+
+    public void pause(long now) {
+        if (!running) return;
+        remaining = Math.max(0, phaseEnd - now);
+        running = false;
+        pausedSince = now;
+    }
+
+    /** Ends any open session and goes back to an idle work phase. */
+    public void stop(long now) {
+        if (open) closeSession(now, false);
+        running = false;
+        phase = Phase.WORK;
+        remaining = workNanos;
+    }
+
+    /**
+     * Runs every phase end up to now: each closes its session, opens the next one from the
+     * previous deadline (so a late call does not shift later phases) and notifies listeners.
+     */
+    public void advance(long now) {
+        while (running && now - phaseEnd >= 0) {
+            long end = phaseEnd;
+            closeSession(end, true);
+            phase = phase == Phase.WORK ? Phase.BREAK : Phase.WORK;
+            long length = length(phase);
+            openSession(end, length);
+            phaseEnd = end + length;
+            for (Listener l : listeners) l.phaseChanged(phase);
+        }
+    }
+
+    public void setWorkLength(long nanos, long now) {
+        workNanos = nanos;
+        if (phase == Phase.WORK) restartPhase(now);
+    }
+
+    public void setBreakLength(long nanos, long now) {
+        breakNanos = nanos;
+        if (phase == Phase.BREAK) restartPhase(now);
+    }
+
+    /** A new length restarts the current phase from full; the session so far is logged as cut short. */
+    private void restartPhase(long now) {
+        long length = length(phase);
+        if (open) closeSession(now, false);
+        if (running) {
+            openSession(now, length);
+            phaseEnd = now + length;
+        } else {
+            remaining = length;
+        }
+    }
+
+    private long length(Phase p) { return p == Phase.WORK ? workNanos : breakNanos; }
+
+    // ---------------- Sessions ----------------
+    private void openSession(long now, long planned) {
+        open = true;
+        sessionStart = now;
+        sessionPlanned = planned;
+        pausedNanos = 0;
+    }
+
+    private void closeSession(long end, boolean completed) {
+        open = false;
+        long paused = pausedNanos + (running ? 0 : end - pausedSince);
+        Session s = new Session(phase, wallMillis(sessionStart), wallMillis(end), sessionPlanned / 1_000_000L,
+                paused / 1_000_000L, completed);
+        for (Listener l : listeners) l.sessionEnded(s);
+    }
+
+    private long wallMillis(long nanos) { return wallAnchorMillis + (nanos - nanoAnchor) / 1_000_000L; }
+}
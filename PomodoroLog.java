@@ -0,0 +1,245 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only log of Pomodoro sessions (pomodoro_sessions.txt) with focus totals per day and
+ * per week kept next to it (pomodoro_totals.txt). Each session adds to the totals as it is
+ * recorded, and the totals file remembers how much of the log it covers, so startup reads
+ * the totals and only the sessions logged after them instead of the whole history.
+ *
+ * Focus is the time work sessions actually counted down, pauses excluded, and belongs to the
+ * day the session started. Breaks are logged but not counted.
+ *
+ * Files are read and written on a thread of its own. Sessions are recorded and totals read on
+ * the owner's thread (the EDT); the loaded history is added to whatever was recorded meanwhile.
+ */
+public class PomodoroLog {
+
+    // Session layout, one per line:
+    //   <W|B>|<start epoch ms>|<end epoch ms>|<planned ms>|<paused ms>|<completed 1/0>
+    // Totals layout: first line is the byte length of the log covered, then
+    //   <epoch day>|<focus ms>
+
+    private final File logFile;
+    private final File totalsFile;
+    private final Executor owner;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pomodoro-log");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Totals totals = new Totals();   // owner thread
+    private boolean loaded;
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    private final Totals written = new Totals();  // io thread: what the log holds
+    private long covered;                         // io thread: bytes of the log in `written`
+
+    /** Starts reading the history in the background; listeners hear when it is in. */
+    public PomodoroLog(File dir, Executor owner) {
+        this.logFile = new File(dir, "pomodoro_sessions.txt");
+        this.totalsFile = new File(dir, "pomodoro_totals.txt");
+        this.owner = owner;
+        io.execute(this::load);
+    }
+
+    /** Runs on the owner thread whenever the totals change. */
+    public void addListener(Runnable l) { listeners.add(l); }
+
+    // ---------------- Recording ----------------
+    public void record(PomodoroEngine.Session session) {
+        long day = day(session.startMillis);
+        long focus = focus(session);
+        totals.add(day, focus);
+        io.execute(() -> append(session, day, focus));
+        for (Runnable l : listeners) l.run();
+    }
+
+    /** Waits until every recorded session is on disk. */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void flush() {
+        try {
+            io.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) { e.printStackTrace(); }
+    }
+
+    /** Flushes, then stops the file thread; for owners that drop the log, like the server's profiles. */
+    public void close() {
+        flush();
+        io.shutdown();
+    }
+
+    private static String format(PomodoroEngine.Session s) {
+        return (s.phase == PomodoroEngine.Phase.WORK ? "W" : "B") + "|" + s.startMillis + "|" + s.endMillis + "|"
+                + s.plannedMillis + "|" + s.pausedMillis + "|" + (s.completed ? "1" : "0");
+    }
+
+    private static PomodoroEngine.Session parse(String line) {
+        String[] f = line.split("\\|");
+        if (f.length != 6 || !(f[0].equals("W") || f[0].equals("B"))) throw new IllegalArgumentException(line);
+        return new PomodoroEngine.Session(f[0].equals("W") ? PomodoroEngine.Phase.WORK : PomodoroEngine.Phase.BREAK,
+                Long.parseLong(f[1]), Long.parseLong(f[2]), Long.parseLong(f[3]), Long.parseLong(f[4]), f[5].equals("1"));
+    }
+
+    private static long focus(PomodoroEngine.Session s) { return s.phase == PomodoroEngine.Phase.WORK ? s.activeMillis() : 0; }
+
+    private static long day(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    // ---------------- Totals ----------------
+    public boolean loaded() { return loaded; }
+
+    public long focusMillis(LocalDate day) { return totals.days.getOrDefault(day.toEpochDay(), 0L); }
+
+    /** Focus in the Monday-to-Sunday week containing day. */
+    public long weekFocusMillis(LocalDate day) { return totals.weeks.getOrDefault(week(day.toEpochDay()), 0L); }
+
+    /** Focus over the days from first to last, both included. */
+    public long focusMillis(LocalDate first, LocalDate last) {
+        long sum = 0;
+        for (long millis : totals.days.subMap(first.toEpochDay(), true, last.toEpochDay(), true).values()) sum += millis;
+        return sum;
+    }
+
+    public long totalFocusMillis() { return totals.total; }
+
+    private static long week(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay();
+    }
+
+    /** Focus by day and by week; days with no focus are left out. */
+    private static final class Totals {
+        final TreeMap<Long, Long> days = new TreeMap<>();
+        final TreeMap<Long, Long> weeks = new TreeMap<>();
+        long total;
+
+        void add(long day, long millis) {
+            if (millis <= 0) return;
+            days.merge(day, millis, Long::sum);
+            weeks.merge(week(day), millis, Long::sum);
+            total += millis;
+        }
+
+        void clear() {
+            days.clear();
+            weeks.clear();
+            total = 0;
+        }
+
+        void addAll(Totals other) {
+            for (Map.Entry<Long, Long> e : other.days.entrySet()) add(e.getKey(), e.getValue());
+        }
+    }
+
+    // ---------------- Files ----------------
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void load() {
+        try {
+            readTotals();
+            if (covered > logFile.length()) { // log replaced behind our back: count it again
+                written.clear();
+                covered = 0;
+            }
+            long before = covered;
+            for (String line : readTail()) {
+                try {
+                    PomodoroEngine.Session s = parse(line);
+                    written.add(day(s.startMillis), focus(s));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Skipping bad session record: " + line);
+                }
+            }
+            if (covered != before) writeTotals();
+        } catch (IOException e) { e.printStackTrace(); }
+        Totals history = new Totals();
+        history.addAll(written);
+        owner.execute(() -> {
+            totals.addAll(history);
+            loaded = true;
+            for (Runnable l : listeners) l.run();
+        });
+    }
+
+    private void readTotals() throws IOException {
+        if (!totalsFile.exists()) return;
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(totalsFile), StandardCharsets.UTF_8))) {
+            long offset = Long.parseLong(r.readLine().trim());
+            for (String line; (line = r.readLine()) != null; ) {
+                int bar = line.indexOf('|');
+                written.add(Long.parseLong(line.substring(0, bar)), Long.parseLong(line.substring(bar + 1)));
+            }
+            covered = offset;
+        } catch (RuntimeException e) { // unreadable totals: count the whole log instead
+            System.err.println("Ignoring bad " + totalsFile + ": " + e);
+            written.clear();
+            covered = 0;
+        }
+    }
+
+    /** Complete lines of the log after what the totals cover; moves covered past them. */
+    private List<String> readTail() throws IOException {
+        List<String> lines = new ArrayList<>();
+        long length = logFile.length();
+        if (length <= covered) return lines;
+        ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(length - covered));
+        byte[] bytes = buf.array();
+        int end;
+        try (FileChannel ch = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining() && ch.read(buf, covered + buf.position()) >= 0) { }
+            end = buf.position();
+            while (end > 0 && bytes[end - 1] != '\n') end--;
+            // a crash can leave half a line; cut it so the next append starts a line of its own
+            if (end < buf.position()) ch.truncate(covered + end);
+        }
+        for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) lines.add(line);
+        }
+        HabitMetrics.INSTANCE.linesParsed(lines.size());
+        covered += end;
+        return lines;
+    }
+
+    @SuppressWarnings("CallToPrintStackTrace")
+    private void append(PomodoroEngine.Session session, long day, long focus) {
+        byte[] line = (format(session) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(line);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return; // totals keep matching the log
+        }
+        HabitMetrics.INSTANCE.bytesWritten(line.length);
+        written.add(day, focus);
+        covered += line.length;
+        try {
+            writeTotals();
+        } catch (IOException e) { e.printStackTrace(); }
+    }
+
+    private void writeTotals() throws IOException {
+        List<String> lines = new ArrayList<>(written.days.size() + 1);
+        lines.add(Long.toString(covered));
+        for (Map.Entry<Long, Long> e : written.days.entrySet()) lines.add(e.getKey() + "|" + e.getValue());
+        HabitJournal.writeSnapshot(totalsFile, lines);
+    }
+}
@@ -0,0 +1,178 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+/**
+ * When a habit is meant to be done: every day, on some weekdays, N times a week, or once
+ * every K days. Each rule cuts the calendar into periods with a quota: one day and one
+ * completion for daily and weekday rules, a Monday-to-Sunday week and N completions, or
+ * K days counted from an anchor day and one completion. Days in no period (the weekdays a
+ * weekday rule skips) are never due.
+ *
+ * Streaks count consecutive periods that met their quota. Days are epoch days throughout.
+ * Immutable; the text form (toString / parse) is what the schedule file and journal store.
+ */
+public final class Recurrence {
+
+    /** periodStart() of a day that belongs to no period. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    public static final Recurrence DAILY = new Recurrence(Kind.DAILY, 0x7f, 1, 0);
+
+    public enum Kind { DAILY, WEEKDAYS, TIMES_PER_WEEK, EVERY_DAYS }
+
+    private final Kind kind;
+    private final int weekdays; // WEEKDAYS: bit 0 = Monday
+    private final int count;    // TIMES_PER_WEEK: completions per week; EVERY_DAYS: days per period
+    private final long anchor;  // EVERY_DAYS: first day of a period
+
+    private Recurrence(Kind kind, int weekdays, int count, long anchor) {
+        this.kind = kind;
+        this.weekdays = weekdays;
+        this.count = count;
+        this.anchor = anchor;
+    }
+
+    /** mask bit 0 is Monday, bit 6 Sunday; every day set is the same as DAILY. */
+    public static Recurrence weekdays(int mask) {
+        mask &= 0x7f;
+        if (mask == 0) throw new IllegalArgumentException("no weekday selected");
+        return mask == 0x7f ? DAILY : new Recurrence(Kind.WEEKDAYS, mask, 1, 0);
+    }
+
+    public static Recurrence timesPerWeek(int times) {
+        if (times < 1 || times > 7) throw new IllegalArgumentException("times per week: " + times);
+        return new Recurrence(Kind.TIMES_PER_WEEK, 0x7f, times, 0);
+    }
+
+    /** Periods of days days, one of them starting on anchorDay. */
+    public static Recurrence everyDays(int days, long anchorDay) {
+        if (days < 1) throw new IllegalArgumentException("days: " + days);
+        return days == 1 ? DAILY : new Recurrence(Kind.EVERY_DAYS, 0x7f, days, Math.floorMod(anchorDay, days));
+    }
+
+    public Kind kind() { return kind; }
+
+    public int weekdayMask() { return weekdays; }
+
+    /** Completions a period needs. */
+    public int quota() { return kind == Kind.TIMES_PER_WEEK ? count : 1; }
+
+    /** Days per period for EVERY_DAYS, completions per week for TIMES_PER_WEEK, else 1. */
+    public int count() { return count; }
+
+    // ---------------- Periods ----------------
+    private static int weekday(long day) { return Math.floorMod(day + 3, 7); } // epoch day 0 was a Thursday
+
+    private static long monday(long day) { return day - weekday(day); }
+
+    /** First day of the period containing day, or NONE. */
+    public long periodStart(long day) {
+        switch (kind) {
+            case WEEKDAYS: return (weekdays >>> weekday(day) & 1) != 0 ? day : NONE;
+            case TIMES_PER_WEEK: return monday(day);
+            case EVERY_DAYS: return day - Math.floorMod(day - anchor, count);
+            default: return day;
+        }
+    }
+
+    /** Last day of the period starting at start. */
+    public long periodEnd(long start) {
+        switch (kind) {
+            case TIMES_PER_WEEK: return start + 6;
+            case EVERY_DAYS: return start + count - 1;
+            default: return start;
+        }
+    }
+
+    /** First day of the earliest period starting after day. */
+    public long nextPeriodStart(long day) {
+        if (kind != Kind.WEEKDAYS) {
+            long start = periodStart(day);
+            return periodEnd(start) + 1;
+        }
+        int from = weekday(day) + 1; // next weekday with its bit set, wrapping after Sunday
+        int rotated = (weekdays | weekdays << 7) >>> from;
+        return day + 1 + Integer.numberOfTrailingZeros(rotated);
+    }
+
+    /** Start of the latest period starting on or before day. */
+    public long latestPeriodStart(long day) {
+        if (kind != Kind.WEEKDAYS) return periodStart(day);
+        int to = weekday(day); // previous-or-same weekday with its bit set
+        int rotated = (weekdays | weekdays << 7) << (31 - 7 - to);
+        return day - Integer.numberOfLeadingZeros(rotated);
+    }
+
+    /** Start of the period before the one starting at start. */
+    public long previousPeriodStart(long start) { return latestPeriodStart(start - 1); }
+
+    // ---------------- Text ----------------
+
+    /** daily, days:1010100 (Monday first), week:3 or every:3:2024-01-01. */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case WEEKDAYS: {
+                StringBuilder sb = new StringBuilder("days:");
+                for (int d = 0; d < 7; d++) sb.append((weekdays >>> d & 1) != 0 ? '1' : '0');
+                return sb.toString();
+            }
+            case TIMES_PER_WEEK: return "week:" + count;
+            case EVERY_DAYS: return "every:" + count + ":" + LocalDate.ofEpochDay(anchor);
+            default: return "daily";
+        }
+    }
+
+    /** Reads toString()'s form; throws IllegalArgumentException (or a subclass) on anything else. */
+    public static Recurrence parse(String text) {
+        String[] p = text.split(":");
+        switch (p[0]) {
+            case "daily":
+                return DAILY;
+            case "days": {
+                if (p.length != 2 || p[1].length() != 7) throw new IllegalArgumentException(text);
+                int mask = 0;
+                for (int d = 0; d < 7; d++) if (p[1].charAt(d) == '1') mask |= 1 << d;
+                return weekdays(mask);
+            }
+            case "week":
+                if (p.length != 2) throw new IllegalArgumentException(text);
+                return timesPerWeek(Integer.parseInt(p[1]));
+            case "every":
+                if (p.length != 3) throw new IllegalArgumentException(text);
+                return everyDays(Integer.parseInt(p[1]), LocalDate.parse(p[2]).toEpochDay());
+            default:
+                throw new IllegalArgumentException(text);
+        }
+    }
+
+    /** Short label for the habit list, e.g. "Mon Wed Fri", "3x a week", "Every 2 days". */
+    public String describe() {
+        switch (kind) {
+            case WEEKDAYS: {
+                StringBuilder sb = new StringBuilder();
+                for (int d = 0; d < 7; d++) {
+                    if ((weekdays >>> d & 1) == 0) continue;
+                    if (sb.length() > 0) sb.append(' ');
+                    sb.append(DayOfWeek.of(d + 1).getDisplayName(TextStyle.SHORT, Locale.getDefault()));
+                }
+                return sb.toString();
+            }
+            case TIMES_PER_WEEK: return count + "x a week";
+            case EVERY_DAYS: return "Every " + count + " days";
+            default: return "Daily";
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Recurrence)) return false;
+        Recurrence r = (Recurrence) o;
+        return kind == r.kind && weekdays == r.weekdays && count == r.count && anchor == r.anchor;
+    }
+
+    @Override
+    public int hashCode() { return ((kind.hashCode() * 31 + weekdays) * 31 + count) * 31 + Long.hashCode(anchor); }
+}
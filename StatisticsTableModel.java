@@ -0,0 +1,89 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Statistics table backed directly by the HabitStore. It is created once and follows the
+ * store's events, firing single-row updates when a streak changes, so opening the
+ * Statistics section costs nothing and a TableRowSorter on top keeps its order and
+ * selection instead of being replaced on every visit. The history columns come from a
+ * HabitStatsEngine, which works them out in the background; they stay blank until the
+ * habit's partition is done and then fill in a block of rows at a time.
+ */
+public class StatisticsTableModel extends AbstractTableModel implements HabitStore.Listener {
+
+    public static final int NAME = 0;
+    public static final int STREAK = 1;
+    public static final int LONGEST = 2;
+    public static final int LAST_7 = 3;
+    public static final int LAST_30 = 4;
+    public static final int LAST_365 = 5;
+    public static final int BEST_DAY = 6;
+    public static final int CORRELATION = 7;
+
+    private static final String[] COLUMNS = {"Habit", "Streak", "Longest", "7 days %", "30 days %", "365 days %", "Best day", "Like selected"};
+
+    private final HabitStore store;
+    private final HabitStatsEngine stats;
+
+    public StatisticsTableModel(HabitStore store) {
+        this.store = store;
+        store.addListener(this);
+        stats = new HabitStatsEngine(store, this::fireTableRowsUpdated);
+    }
+
+    /** Fills the correlation column against this habit, or clears it for null. */
+    public void compareWith(HabitStore.Habit habit) { stats.setTarget(habit == null ? -1 : habit.id()); }
+
+    public HabitStore.Habit habitAt(int row) { return store.get(row); }
+
+    @Override
+    public int getRowCount() { return store.size(); }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case NAME: return String.class;
+            case BEST_DAY: return java.time.DayOfWeek.class;
+            case CORRELATION: return Float.class;
+            default: return Integer.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        HabitStore.Habit h = store.get(row);
+        switch (column) {
+            case STREAK: return h.streak();
+            case LONGEST: return stats.longestStreak(h.id());
+            case LAST_7: return stats.completionPercent(h.id(), 7);
+            case LAST_30: return stats.completionPercent(h.id(), 30);
+            case LAST_365: return stats.completionPercent(h.id(), HabitStatsEngine.YEAR_DAYS);
+            case BEST_DAY: return stats.bestWeekday(h.id());
+            case CORRELATION: return stats.correlation(h.id());
+            default: return h.name();
+        }
+    }
+
+    // ---------------- Store events ----------------
+    @Override
+    public void habitAdded(HabitStore.Habit habit) { fireTableRowsInserted(habit.index(), habit.index()); }
+
+    @Override
+    public void habitChanged(HabitStore.Habit habit) { fireTableRowsUpdated(habit.index(), habit.index()); }
+
+    @Override
+    public void habitRemoved(HabitStore.Habit habit, int index) { fireTableRowsDeleted(index, index); }
+
+    @Override
+    public void habitsAdded(int fromIndex, int toIndex) { fireTableRowsInserted(fromIndex, toIndex); }
+
+    @Override
+    public void habitsChanged() {
+        if (store.size() > 0) fireTableRowsUpdated(0, store.size() - 1);
+    }
+}
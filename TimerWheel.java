@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel on the wall clock: four levels of 64 slots with one-second ticks,
+ * so the levels span about a minute, an hour, three days and six months; timers further out
+ * wait in an overflow list. A timer sits in the level of the highest 6-bit group in which
+ * its tick differs from the current one and moves down a level when time reaches the start
+ * of its slot, so scheduling and cancelling unlink or link one list node and never search.
+ *
+ * One thread sleeps until the next slot that has something in it (64-bit occupancy masks
+ * make that a few bit scans) and hands everything that expired together to the sink as one
+ * batch. Sleeps are capped so a wall-clock jump is noticed within a minute; a clock set back
+ * delays timers by as much, it never fires them early.
+ *
+ * Thread-safe; the sink runs on the wheel's thread and should hand off quickly.
+ */
+public class TimerWheel<T> {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+    private static final long MAX_SLEEP_MILLIS = 60_000;
+
+    public final class Timer {
+        private final T payload;
+        private final long tick;
+        private Timer prev, next;
+        private int level = -1; // -1 unlinked, LEVELS in the overflow list
+        private int slot;
+
+        private Timer(T payload, long tick) {
+            this.payload = payload;
+            this.tick = tick;
+        }
+
+        public T payload() { return payload; }
+
+        /** Epoch millis the timer fires at, rounded up to the tick. */
+        public long dueMillis() { return tick * TICK_MILLIS; }
+    }
+
+    private final Object[] heads = new Object[LEVELS * SLOTS + 1]; // Timer list per slot, then overflow
+    private final long[] occupied = new long[LEVELS];
+    private long now; // current tick: everything at or before it has fired
+    private final List<T> expired = new ArrayList<>();
+    private final Consumer<List<T>> sink;
+    private int size;
+
+    public TimerWheel(String name, Consumer<List<T>> sink) {
+        this.sink = sink;
+        this.now = System.currentTimeMillis() / TICK_MILLIS;
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // ---------------- Scheduling ----------------
+
+    /** Fires payload at epochMillis, or in the next batch if that has passed. */
+    public synchronized Timer schedule(long epochMillis, T payload) {
+        Timer t = new Timer(payload, Math.floorDiv(epochMillis + TICK_MILLIS - 1, TICK_MILLIS));
+        long before = nextEvent();
+        if (!place(t)) notifyAll(); // due already: deliver without waiting for the next slot
+        else if (t.level < LEVELS && slotStart(t) < before) notifyAll(); // new earliest wakeup
+        if (t.level >= 0) size++;
+        return t;
+    }
+
+    /**
+     * Returns false if the timer had already fired or been cancelled; a timer that fired may
+     * still have its batch on the way to the sink.
+     */
+    public synchronized boolean cancel(Timer t) {
+        if (t.level < 0) return false;
+        unlink(t);
+        size--;
+        return true;
+    }
+
+    public synchronized int size() { return size; }
+
+    /** Links t where it belongs from now; returns false and queues its payload if it is due. */
+    private boolean place(Timer t) {
+        long diff = t.tick ^ now;
+        if (t.tick <= now) {
+            expired.add(t.payload);
+            t.level = -1;
+            return false;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(diff)) / BITS;
+        int slot = level >= LEVELS ? 0 : (int) (t.tick >>> (level * BITS)) & (SLOTS - 1);
+        if (level >= LEVELS) level = LEVELS;
+        int head = level * SLOTS + slot;
+        @SuppressWarnings("unchecked")
+        Timer first = (Timer) heads[head];
+        t.level = level;
+        t.slot = slot;
+        t.prev = null;
+        t.next = first;
+        if (first != null) first.prev = t;
+        heads[head] = t;
+        if (level < LEVELS) occupied[level] |= 1L << slot;
+        return true;
+    }
+
+    private void unlink(Timer t) {
+        int head = t.level * SLOTS + t.slot;
+        if (t.prev != null) t.prev.next = t.next;
+        else heads[head] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        if (heads[head] == null && t.level < LEVELS) occupied[t.level] &= ~(1L << t.slot);
+        t.prev = t.next = null;
+        t.level = -1;
+    }
+
+    /** Tick at which t's slot comes up: it fires (level 0) or moves down a level. */
+    private long slotStart(Timer t) {
+        return t.tick >>> (t.level * BITS) << (t.level * BITS);
+    }
+
+    // ---------------- Advancing ----------------
+
+    /** Earliest tick after now at which some slot comes up, or Long.MAX_VALUE. */
+    private long nextEvent() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * BITS;
+            int current = (int) (now >>> shift) & (SLOTS - 1);
+            long ahead = current == SLOTS - 1 ? 0 : occupied[level] & (-1L << (current + 1));
+            if (ahead == 0) continue;
+            long group = (now >>> (shift + BITS) << BITS) + Long.numberOfTrailingZeros(ahead);
+            next = Math.min(next, group << shift);
+        }
+        if (heads[LEVELS * SLOTS] != null) next = Math.min(next, (now >>> (LEVELS * BITS)) + 1 << (LEVELS * BITS));
+        return next;
+    }
+
+    /** Moves now to target, taking every slot that comes up on the way, top level first. */
+    private void advance(long target) {
+        for (long event; (event = nextEvent()) <= target; ) {
+            now = event;
+            for (int level = LEVELS; level >= 0; level--) {
+                int shift = level * BITS;
+                if ((now & ((1L << shift) - 1)) != 0) continue; // not on this level's boundary
+                int slot = level == LEVELS ? 0 : (int) (now >>> shift) & (SLOTS - 1);
+                int head = level * SLOTS + slot;
+                @SuppressWarnings("unchecked")
+                Timer t = (Timer) heads[head];
+                heads[head] = null;
+                if (level < LEVELS) occupied[level] &= ~(1L << slot);
+                while (t != null) {
+                    Timer next = t.next;
+                    if (!place(t)) size--;
+                    t = next;
+                }
+            }
+        }
+        if (target > now) now = target;
+    }
+
+    private void run() {
+        while (true) {
+            List<T> batch;
+            synchronized (this) {
+                try {
+                    while (true) {
+                        long millis = System.currentTimeMillis();
+                        advance(millis / TICK_MILLIS);
+                        if (!expired.isEmpty()) break;
+                        long next = nextEvent();
+                        long wait = next == Long.MAX_VALUE ? MAX_SLEEP_MILLIS
+                                : Math.min(MAX_SLEEP_MILLIS, next * TICK_MILLIS - millis);
+                        wait(Math.max(1, wait));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batch = new ArrayList<>(expired);
+                expired.clear();
+            }
+            sink.accept(batch);
+        }
+    }
+}
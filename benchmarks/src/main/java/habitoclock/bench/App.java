@@ -0,0 +1,155 @@
+package habitoclock.bench;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.List;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Entry points into the app classes. They live in the default package, which Java code in
+ * a named package cannot reference (and JMH will not generate benchmarks for), so they are
+ * bound once through static final method handles that the JIT inlines like direct calls.
+ */
+final class App {
+
+    private static final MethodHandle NEW_STORE;
+    private static final MethodHandle LOAD;
+    private static final MethodHandle HABIT_LINES;
+    private static final MethodHandle STREAK_LINES;
+    private static final MethodHandle WRITE_SNAPSHOT;
+    private static final MethodHandle WRITE_BINARY;
+    private static final MethodHandle OPEN_SNAPSHOT;
+    private static final MethodHandle LOAD_SNAPSHOT;
+    private static final MethodHandle SNAPSHOT_BYTES;
+    private static final MethodHandle LOAD_HISTORY;
+    private static final MethodHandle LOAD_SCHEDULES;
+    private static final MethodHandle RECORD_DAY;
+    private static final MethodHandle HISTORY_BYTES;
+    private static final MethodHandle CATCH_UP;
+    private static final MethodHandle STATISTICS_MODEL;
+    private static final MethodHandle GET;
+    private static final MethodHandle SET_STREAK;
+    private static final MethodHandle NEW_CLOCK;
+    private static final MethodHandle CLOCK_TICK;
+    private static final MethodHandle NEW_SERVER;
+    private static final MethodHandle START_SERVER;
+    private static final MethodHandle STOP_SERVER;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> store = Class.forName("HabitStore");
+            Class<?> journal = Class.forName("HabitJournal");
+            Class<?> habit = Class.forName("HabitStore$Habit");
+            Class<?> statistics = Class.forName("StatisticsTableModel");
+            Class<?> clock = Class.forName("ClockComponent");
+            Class<?> snapshot = Class.forName("HabitSnapshot");
+            Class<?> server = Class.forName("HabitServer");
+
+            NEW_STORE = lookup.findConstructor(store, methodType(void.class)).asType(methodType(Object.class));
+            LOAD = lookup.findVirtual(store, "load", methodType(void.class, File.class, File.class))
+                    .asType(methodType(void.class, Object.class, File.class, File.class));
+            HABIT_LINES = lookup.findVirtual(store, "habitLines", methodType(List.class))
+                    .asType(methodType(List.class, Object.class));
+            STREAK_LINES = lookup.findVirtual(store, "streakLines", methodType(List.class))
+                    .asType(methodType(List.class, Object.class));
+            WRITE_SNAPSHOT = lookup.findStatic(journal, "writeSnapshot", methodType(void.class, File.class, List.class));
+            WRITE_BINARY = lookup.findStatic(journal, "writeSnapshot", methodType(void.class, File.class, byte[].class));
+            OPEN_SNAPSHOT = lookup.findStatic(snapshot, "open", methodType(snapshot, File.class))
+                    .asType(methodType(Object.class, File.class));
+            LOAD_SNAPSHOT = lookup.findVirtual(store, "load", methodType(void.class, snapshot))
+                    .asType(methodType(void.class, Object.class, Object.class));
+            SNAPSHOT_BYTES = lookup.findStatic(snapshot, "toBytes", methodType(byte[].class, store))
+                    .asType(methodType(byte[].class, Object.class));
+            LOAD_HISTORY = lookup.findVirtual(store, "loadHistory", methodType(void.class, File.class))
+                    .asType(methodType(void.class, Object.class, File.class));
+            LOAD_SCHEDULES = lookup.findVirtual(store, "loadSchedules", methodType(void.class, File.class))
+                    .asType(methodType(void.class, Object.class, File.class));
+            RECORD_DAY = lookup.findVirtual(store, "recordDay", methodType(void.class, habit, LocalDate.class, boolean.class))
+                    .asType(methodType(void.class, Object.class, Object.class, LocalDate.class, boolean.class));
+            HISTORY_BYTES = lookup.findVirtual(store, "historyBytes", methodType(byte[].class, boolean.class))
+                    .asType(methodType(byte[].class, Object.class, boolean.class));
+            CATCH_UP = lookup.findVirtual(store, "catchUp", methodType(int.class, LocalDate.class))
+                    .asType(methodType(int.class, Object.class, LocalDate.class));
+            GET = lookup.findVirtual(store, "get", methodType(habit, int.class))
+                    .asType(methodType(Object.class, Object.class, int.class));
+            SET_STREAK = lookup.findVirtual(store, "setStreak", methodType(void.class, habit, int.class, LocalDate.class))
+                    .asType(methodType(void.class, Object.class, Object.class, int.class, LocalDate.class));
+            STATISTICS_MODEL = lookup.findConstructor(statistics, methodType(void.class, store))
+                    .asType(methodType(javax.swing.table.TableModel.class, Object.class));
+            NEW_CLOCK = lookup.findConstructor(clock, methodType(void.class))
+                    .asType(methodType(javax.swing.JComponent.class));
+            CLOCK_TICK = lookup.findVirtual(clock, "tick", methodType(void.class, long.class))
+                    .asType(methodType(void.class, javax.swing.JComponent.class, long.class));
+            NEW_SERVER = lookup.findConstructor(server, methodType(void.class, File.class, int.class))
+                    .asType(methodType(Object.class, File.class, int.class));
+            START_SERVER = lookup.findVirtual(server, "start", methodType(int.class, java.net.InetSocketAddress.class))
+                    .asType(methodType(int.class, Object.class, java.net.InetSocketAddress.class));
+            STOP_SERVER = lookup.findVirtual(server, "stop", methodType(void.class))
+                    .asType(methodType(void.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private App() {}
+
+    static Object newStore() throws Throwable { return (Object) NEW_STORE.invokeExact(); }
+
+    static void load(Object store, File habitFile, File streakFile) throws Throwable { LOAD.invokeExact(store, habitFile, streakFile); }
+
+    @SuppressWarnings("unchecked")
+    static List<String> habitLines(Object store) throws Throwable { return (List<String>) HABIT_LINES.invokeExact(store); }
+
+    @SuppressWarnings("unchecked")
+    static List<String> streakLines(Object store) throws Throwable { return (List<String>) STREAK_LINES.invokeExact(store); }
+
+    static void writeSnapshot(File target, List<String> lines) throws Throwable { WRITE_SNAPSHOT.invokeExact(target, lines); }
+
+    static void writeSnapshot(File target, byte[] bytes) throws Throwable { WRITE_BINARY.invokeExact(target, bytes); }
+
+    static Object openSnapshot(File file) throws Throwable { return (Object) OPEN_SNAPSHOT.invokeExact(file); }
+
+    static void loadSnapshot(Object store, Object snapshot) throws Throwable { LOAD_SNAPSHOT.invokeExact(store, snapshot); }
+
+    static byte[] snapshotBytes(Object store) throws Throwable { return (byte[]) SNAPSHOT_BYTES.invokeExact(store); }
+
+    static void loadHistory(Object store, File historyFile) throws Throwable { LOAD_HISTORY.invokeExact(store, historyFile); }
+
+    static void loadSchedules(Object store, File scheduleFile) throws Throwable { LOAD_SCHEDULES.invokeExact(store, scheduleFile); }
+
+    static void recordDay(Object store, Object habit, LocalDate day, boolean done) throws Throwable {
+        RECORD_DAY.invokeExact(store, habit, day, done);
+    }
+
+    static byte[] historyBytes(Object store, boolean byId) throws Throwable { return (byte[]) HISTORY_BYTES.invokeExact(store, byId); }
+
+    static int catchUp(Object store, LocalDate today) throws Throwable { return (int) CATCH_UP.invokeExact(store, today); }
+
+    static Object get(Object store, int index) throws Throwable { return (Object) GET.invokeExact(store, index); }
+
+    static void setStreak(Object store, Object habit, int streak, LocalDate lastCompleted) throws Throwable {
+        SET_STREAK.invokeExact(store, habit, streak, lastCompleted);
+    }
+
+    /** Attaches a new StatisticsTableModel to the store. */
+    static javax.swing.table.TableModel statisticsModel(Object store) throws Throwable {
+        return (javax.swing.table.TableModel) STATISTICS_MODEL.invokeExact(store);
+    }
+
+    static javax.swing.JComponent newClock() throws Throwable { return (javax.swing.JComponent) NEW_CLOCK.invokeExact(); }
+
+    static void tick(javax.swing.JComponent clock, long epochMillis) throws Throwable { CLOCK_TICK.invokeExact(clock, epochMillis); }
+
+    static Object newServer(File root, int profiles) throws Throwable { return (Object) NEW_SERVER.invokeExact(root, profiles); }
+
+    /** Returns the bound port. */
+    static int startServer(Object server, java.net.InetSocketAddress address) throws Throwable {
+        return (int) START_SERVER.invokeExact(server, address);
+    }
+
+    static void stopServer(Object server) throws Throwable { STOP_SERVER.invokeExact(server); }
+}
@@ -0,0 +1,37 @@
+package habitoclock.bench;
+
+import java.awt.Font;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JComponent;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One Home clock tick per invocation, a simulated second apart. With the GC profiler the
+ * allocation rate should stay at (close to) zero bytes per op.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class ClockBenchmark {
+
+    private JComponent clock;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        clock = App.newClock();
+        clock.setFont(new Font("Monospaced", Font.BOLD, 60));
+        clock.setSize(clock.getPreferredSize());
+        now = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public void tick() throws Throwable {
+        now += 1000;
+        App.tick(clock, now);
+    }
+}
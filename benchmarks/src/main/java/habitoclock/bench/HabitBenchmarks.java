@@ -0,0 +1,212 @@
+package habitoclock.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Hot paths of the app on synthetic data sets: parsing habits.txt / habits_meta.txt,
+ * loading a binary profile, rendering and writing the snapshot files, the daily rollover and building the
+ * statistics table. Run with {@code gradle :benchmarks:jmh}; the task adds the GC
+ * profiler so every result comes with its allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class HabitBenchmarks {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int habits;
+
+    private Path dir;
+    private File habitFile;
+    private File streakFile;
+    private File missingFile;
+    private File binaryFile;
+    private File historyFile;
+    private File scheduleFile;
+    private File binaryOut;
+    private File habitOut;
+    private File streakOut;
+
+    private Object store;
+    private Object statisticsStore; // separate, so the statistics listeners do not skew the other benchmarks
+    private LocalDate day;
+    private int next;
+    private TableRowSorter<TableModel> statisticsSorter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dir = Files.createTempDirectory("habit-bench");
+        habitFile = dir.resolve("habits.txt").toFile();
+        streakFile = dir.resolve("habits_meta.txt").toFile();
+        missingFile = dir.resolve("missing.txt").toFile();
+        habitOut = dir.resolve("habits.out.txt").toFile();
+        streakOut = dir.resolve("habits_meta.out.txt").toFile();
+        binaryFile = dir.resolve("habits.bin").toFile();
+        binaryOut = dir.resolve("habits.out.bin").toFile();
+        historyFile = dir.resolve("habits_history.bin").toFile();
+        scheduleFile = dir.resolve("habits_schedule.txt").toFile();
+
+        LocalDate base = LocalDate.of(2025, 1, 1);
+        List<String> habitLines = new ArrayList<>(habits);
+        List<String> streakLines = new ArrayList<>(habits);
+        for (int i = 0; i < habits; i++) {
+            habitLines.add("1|habit " + i);
+            streakLines.add("habit " + i + "|" + (i % 365) + "|" + base.plusDays(i % 365));
+        }
+        Files.write(habitFile.toPath(), habitLines);
+        Files.write(streakFile.toPath(), streakLines);
+
+        store = App.newStore();
+        App.load(store, habitFile, streakFile);
+        App.writeSnapshot(binaryFile, App.snapshotBytes(store));
+        // a week of history for each habit and a weekday rule on every tenth, keyed by id as
+        // a binary profile writes them; recorded on a copy so the other benchmarks see none
+        Object recorded = App.newStore();
+        App.loadSnapshot(recorded, App.openSnapshot(binaryFile));
+        List<String> scheduleLines = new ArrayList<>();
+        scheduleLines.add("#ids");
+        for (int i = 0; i < habits; i++) {
+            Object h = App.get(recorded, i);
+            for (int d = 0; d < 7; d++) App.recordDay(recorded, h, base.plusDays(300 + d), (i + d) % 3 != 0);
+            if (i % 10 == 0) scheduleLines.add("days:1111100|" + i);
+        }
+        App.writeSnapshot(historyFile, App.historyBytes(recorded, true));
+        App.writeSnapshot(scheduleFile, scheduleLines);
+        day = base.plusYears(1);
+
+        statisticsStore = App.newStore();
+        App.load(statisticsStore, habitFile, streakFile);
+        // The statistics engine publishes its columns on the EDT, so that store and its
+        // sorters are only touched there, as in the app.
+        onEdt(() -> {
+            TableModel statistics = App.statisticsModel(statisticsStore);
+            TableRowSorter<TableModel> sorted = new TableRowSorter<>(statistics);
+            sorted.setSortsOnUpdates(true);
+            sorted.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.DESCENDING)));
+            statistics.addTableModelListener(e -> {
+                // what JTable does for its sorter when the model fires row updates
+                if (e.getType() == javax.swing.event.TableModelEvent.UPDATE) sorted.rowsUpdated(e.getFirstRow(), e.getLastRow());
+            });
+            statisticsSorter = new TableRowSorter<>(statistics);
+        });
+    }
+
+    private interface EdtAction {
+        void run() throws Throwable;
+    }
+
+    private static void onEdt(EdtAction action) throws Throwable {
+        Throwable[] failure = new Throwable[1];
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                action.run();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    // ---------------- Load ----------------
+    @Benchmark
+    public Object loadHabits() throws Throwable {
+        Object s = App.newStore();
+        App.load(s, habitFile, missingFile);
+        return s;
+    }
+
+    /** loadHabits plus matching every habit against habits_meta.txt. */
+    @Benchmark
+    public Object loadHabitsAndStreaks() throws Throwable {
+        Object s = App.newStore();
+        App.load(s, habitFile, streakFile);
+        return s;
+    }
+
+    /** The same habits and streaks from habits.bin: mapped, names left undecoded. */
+    @Benchmark
+    public Object loadBinarySnapshot() throws Throwable {
+        Object s = App.newStore();
+        App.loadSnapshot(s, App.openSnapshot(binaryFile));
+        return s;
+    }
+
+    /** Everything a binary profile reads at startup: habits.bin, then its history and schedules. */
+    @Benchmark
+    public Object loadBinaryProfile() throws Throwable {
+        Object s = App.newStore();
+        App.loadSnapshot(s, App.openSnapshot(binaryFile));
+        App.loadHistory(s, historyFile);
+        App.loadSchedules(s, scheduleFile);
+        return s;
+    }
+
+    // ---------------- Save ----------------
+    @Benchmark
+    public void saveHabits() throws Throwable {
+        App.writeSnapshot(habitOut, App.habitLines(store));
+    }
+
+    @Benchmark
+    public void saveStreaks() throws Throwable {
+        App.writeSnapshot(streakOut, App.streakLines(store));
+    }
+
+    @Benchmark
+    public void saveBinarySnapshot() throws Throwable {
+        App.writeSnapshot(binaryOut, App.snapshotBytes(store));
+    }
+
+    // ---------------- Streaks ----------------
+    /** Moving to the next day: the due-today index and the streaks of habits that missed a period. */
+    @Benchmark
+    public int dayRollover() throws Throwable {
+        day = day.plusDays(1);
+        return App.catchUp(store, day);
+    }
+
+    // ---------------- Statistics ----------------
+    /** One streak change flowing through the statistics model into a sorter that resorts on updates. */
+    @Benchmark
+    public void updateStatisticsTable() throws Throwable {
+        int i = next++ % habits;
+        onEdt(() -> App.setStreak(statisticsStore, App.get(statisticsStore, i), next, day));
+    }
+
+    /** Sorting the whole statistics view by streak, as after a header click. */
+    @Benchmark
+    public Object sortStatistics() throws Throwable {
+        onEdt(() -> {
+            statisticsSorter.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.DESCENDING)));
+            statisticsSorter.setSortKeys(null);
+        });
+        return statisticsSorter;
+    }
+}
@@ -0,0 +1,80 @@
+package habitoclock.bench;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Toggles over HTTP against a HabitServer on localhost, each benchmark thread acting as its
+ * own user, so the score is end-to-end toggles per second including the client.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@Threads(16)
+public class ServerBenchmark {
+
+    private static final int HABITS = 5;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        Path dir;
+        Object server;
+        String base;
+        HttpClient client;
+        final AtomicInteger users = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable {
+            dir = Files.createTempDirectory("habit-server-bench");
+            server = App.newServer(dir.toFile(), 256);
+            int port = App.startServer(server, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            base = "http://127.0.0.1:" + port + "/users/";
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            App.stopServer(server);
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class User {
+        URI[] toggles = new URI[HABITS];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Server s) throws IOException, InterruptedException {
+            String user = s.base + "user" + s.users.incrementAndGet() + "/habits";
+            for (int i = 0; i < HABITS; i++) {
+                s.client.send(HttpRequest.newBuilder(URI.create(user)).POST(HttpRequest.BodyPublishers.ofString("habit " + i)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                toggles[i] = URI.create(user + "/" + i + "/toggle");
+            }
+        }
+    }
+
+    @Benchmark
+    public int toggle(Server s, User u) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(u.toggles[u.next++ % HABITS]).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return s.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}